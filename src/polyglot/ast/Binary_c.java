@@ -156,17 +156,25 @@ public class Binary_c extends Expr_c implements Binary {
 
     @Override
     public boolean constantValueSet(Lang lang) {
+        return constantMemoized || subexprConstantValuesSet(lang);
+    }
+
+    @Override
+    protected boolean subexprConstantValuesSet(Lang lang) {
         return lang.constantValueSet(left, lang)
                 && lang.constantValueSet(right, lang);
     }
 
     @Override
     public boolean isConstant(Lang lang) {
+        if (memoizeConstant(lang)) return memoIsConstant;
         return lang.isConstant(left, lang) && lang.isConstant(right, lang);
     }
 
     @Override
     public Object constantValue(Lang lang) {
+        if (memoizeConstant(lang)) return memoConstantValue;
+
         if (!lang.isConstant(this, lang)) {
             return null;
         }
@@ -187,8 +187,14 @@ public class Cast_c extends Expr_c implements Cast {
         return Collections.<Type> emptyList();
     }
 
+    @Override
+    protected boolean subexprConstantValuesSet(Lang lang) {
+        return lang.constantValueSet(expr, lang);
+    }
+
     @Override
     public boolean isConstant(Lang lang) {
+        if (memoizeConstant(lang)) return memoIsConstant;
         return lang.isConstant(expr, lang) && (castType.type().isPrimitive()
                 || castType.type()
                            .typeEquals(castType.type().typeSystem().String()));
@@ -196,6 +202,8 @@ public class Cast_c extends Expr_c implements Cast {
 
     @Override
     public Object constantValue(Lang lang) {
+        if (memoizeConstant(lang)) return memoConstantValue;
+
         Object v = lang.constantValue(expr, lang);
 
         if (v == null) {
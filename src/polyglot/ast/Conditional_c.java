@@ -333,14 +333,24 @@ public class Conditional_c extends Expr_c implements Conditional {
         return succs;
     }
 
+    @Override
+    protected boolean subexprConstantValuesSet(Lang lang) {
+        return lang.constantValueSet(cond, lang)
+                && lang.constantValueSet(consequent, lang)
+                && lang.constantValueSet(alternative, lang);
+    }
+
     @Override
     public boolean isConstant(Lang lang) {
+        if (memoizeConstant(lang)) return memoIsConstant;
         return lang.isConstant(cond, lang) && lang.isConstant(consequent, lang)
                 && lang.isConstant(alternative, lang);
     }
 
     @Override
     public Object constantValue(Lang lang) {
+        if (memoizeConstant(lang)) return memoConstantValue;
+
         Object cond_ = lang.constantValue(cond, lang);
         Object then_ = lang.constantValue(consequent, lang);
         Object else_ = lang.constantValue(alternative, lang);
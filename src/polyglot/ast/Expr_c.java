@@ -45,6 +45,18 @@ public abstract class Expr_c extends Term_c implements Expr, ExprOps {
 
     protected Type type;
 
+    /**
+     * Memoized results of {@code isConstant} and {@code constantValue} for
+     * expressions whose constant value is computed from their
+     * subexpressions.  They are recorded once the constant values of all
+     * subexpressions are set, after which they cannot change, and are
+     * discarded when the node is copied.
+     */
+    protected transient boolean constantMemoized;
+    protected transient boolean memoIsConstant;
+    protected transient Object memoConstantValue;
+    private transient boolean memoizingConstant;
+
     @Deprecated
     public Expr_c(Position pos) {
         this(pos, null);
@@ -76,6 +88,47 @@ public abstract class Expr_c extends Term_c implements Expr, ExprOps {
         return n;
     }
 
+    @Override
+    public Node copy() {
+        Expr_c n = (Expr_c) super.copy();
+        n.constantMemoized = false;
+        n.memoConstantValue = null;
+        return n;
+    }
+
+    /**
+     * Return true if the constant values of the subexpressions of this
+     * expression are set, so that its own constant value can be memoized.
+     * Expressions whose constant value is not computed from their
+     * subexpressions return false.
+     */
+    protected boolean subexprConstantValuesSet(Lang lang) {
+        return false;
+    }
+
+    /**
+     * Memoize the results of {@code isConstant} and {@code constantValue}
+     * for this expression, if possible.  Return true if they are memoized,
+     * in which case {@code memoIsConstant} and {@code memoConstantValue}
+     * hold them.
+     */
+    protected boolean memoizeConstant(Lang lang) {
+        if (constantMemoized) return true;
+        if (memoizingConstant || !isTypeChecked()
+                || !subexprConstantValuesSet(lang)) return false;
+
+        memoizingConstant = true;
+        try {
+            memoIsConstant = isConstant(lang);
+            memoConstantValue = constantValue(lang);
+            constantMemoized = true;
+        }
+        finally {
+            memoizingConstant = false;
+        }
+        return true;
+    }
+
     @Override
     public void dump(CodeWriter w) {
         super.dump(w);
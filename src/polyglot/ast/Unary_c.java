@@ -267,11 +267,17 @@ public class Unary_c extends Expr_c implements Unary {
 
     @Override
     public boolean constantValueSet(Lang lang) {
+        return constantMemoized || subexprConstantValuesSet(lang);
+    }
+
+    @Override
+    protected boolean subexprConstantValuesSet(Lang lang) {
         return lang.constantValueSet(expr, lang);
     }
 
     @Override
     public boolean isConstant(Lang lang) {
+        if (memoizeConstant(lang)) return memoIsConstant;
         if (op == POST_INC || op == POST_DEC || op == PRE_INC || op == PRE_DEC) {
             return false;
         }
@@ -280,6 +286,8 @@ public class Unary_c extends Expr_c implements Unary {
 
     @Override
     public Object constantValue(Lang lang) {
+        if (memoizeConstant(lang)) return memoConstantValue;
+
         if (!lang.isConstant(this, lang)) {
             return null;
         }
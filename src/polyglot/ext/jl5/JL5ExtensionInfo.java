@@ -108,7 +108,8 @@ public class JL5ExtensionInfo extends JLExtensionInfo {
     public Parser parser(Reader reader, Source source, ErrorQueue eq) {
         reader = new polyglot.lex.EscapedUnicodeReader(reader);
 
-        polyglot.lex.Lexer lexer = new Lexer_c(reader, source, eq);
+        polyglot.lex.Lexer lexer = new Lexer_c(reader, source, eq,
+                                               compiler().identifiers());
         polyglot.parse.BaseParser parser = new Grm(lexer, ts, nf, eq);
 
         return new CupParser(parser, source, eq);
@@ -119,6 +120,14 @@ public class JL5ExtensionInfo extends JLExtensionInfo {
 	return new Lexer_c(null).keywords();
     }
 
+    @Override
+    public void resetCompilationState() {
+        super.resetCompilationState();
+        // The output extension has a type system of its own; start over
+        // with a new one rather than reinitializing it.
+        outputExtensionInfo = null;
+    }
+
     @Override
     public polyglot.frontend.ExtensionInfo outputExtensionInfo() {
         if (outputExtensionInfo == null) {
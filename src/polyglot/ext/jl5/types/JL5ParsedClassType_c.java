@@ -36,6 +36,7 @@ import polyglot.ext.param.types.PClass;
 import polyglot.frontend.Source;
 import polyglot.types.ClassType;
 import polyglot.types.LazyClassInitializer;
+import polyglot.types.MemberNameIndex;
 import polyglot.types.MethodInstance;
 import polyglot.types.ParsedClassType_c;
 import polyglot.types.ReferenceType;
@@ -58,6 +59,10 @@ public class JL5ParsedClassType_c extends ParsedClassType_c implements
     protected boolean annotationsResolved = false;
     protected Annotations annotations;
 
+    /** Indexes of the enum constants and annotation elements by name. */
+    protected transient MemberNameIndex<EnumInstance> enumConstantIndex;
+    protected transient MemberNameIndex<AnnotationTypeElemInstance> annotationElemIndex;
+
     public JL5ParsedClassType_c(TypeSystem ts, LazyClassInitializer init,
             Source fromSource) {
         super(ts, init, fromSource);
@@ -83,22 +88,32 @@ public class JL5ParsedClassType_c extends ParsedClassType_c implements
 
     @Override
     public EnumInstance enumConstantNamed(String name) {
-        for (EnumInstance ei : enumConstants()) {
-            if (ei.name().equals(name)) {
-                return ei;
-            }
+        if (enumConstantIndex == null) {
+            enumConstantIndex = new MemberNameIndex<EnumInstance>() {
+                @Override
+                protected String name(EnumInstance ei) {
+                    return ei.name();
+                }
+            };
         }
-        return null;
+        return enumConstantIndex.first(enumConstants(), name);
     }
 
     @Override
     public AnnotationTypeElemInstance annotationElemNamed(String name) {
-        for (AnnotationTypeElemInstance ai : annotationElems()) {
-            if (ai.name().equals(name)) {
-                return ai;
-            }
+        if (annotationElemIndex == null) {
+            annotationElemIndex =
+                    new MemberNameIndex<AnnotationTypeElemInstance>() {
+                        @Override
+                        protected String name(AnnotationTypeElemInstance ai) {
+                            return ai.name();
+                        }
+                    };
         }
-        return null;
+        // Index the list itself, not the read-only view annotationElems()
+        // returns, which is fresh on every call.
+        annotationElems();
+        return annotationElemIndex.first(annotationElems, name);
     }
 
     @Override
@@ -340,8 +355,8 @@ public class JL5ParsedClassType_c extends ParsedClassType_c implements
 
     @Override
     public boolean enumValueOfMethodNeeded() {
-        for (MethodInstance mi : this.methods) {
-            if (mi.name().equals("valueOf") && mi.formalTypes().size() == 1) {
+        for (MethodInstance mi : methodIndex().named(this.methods, "valueOf")) {
+            if (mi.formalTypes().size() == 1) {
                 Type t = mi.formalTypes().get(0);
                 if (ts.String().equals(t)) {
                     return false;
@@ -353,8 +368,8 @@ public class JL5ParsedClassType_c extends ParsedClassType_c implements
 
     @Override
     public boolean enumValuesMethodNeeded() {
-        for (MethodInstance mi : this.methods) {
-            if (mi.name().equals("values") && mi.formalTypes().isEmpty()) {
+        for (MethodInstance mi : methodIndex().named(this.methods, "values")) {
+            if (mi.formalTypes().isEmpty()) {
                 return false;
             }
         }
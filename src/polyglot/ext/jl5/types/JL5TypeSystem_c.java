@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -57,6 +58,7 @@ import polyglot.ext.jl5.types.reflect.JL5ClassFileLazyClassInitializer;
 import polyglot.ext.param.types.PClass;
 import polyglot.ext.param.types.ParamTypeSystem_c;
 import polyglot.ext.param.types.Subst;
+import polyglot.frontend.ExtensionInfo;
 import polyglot.frontend.Source;
 import polyglot.main.Report;
 import polyglot.types.ArrayType;
@@ -68,6 +70,7 @@ import polyglot.types.Flags;
 import polyglot.types.ImportTable;
 import polyglot.types.LazyClassInitializer;
 import polyglot.types.LocalInstance;
+import polyglot.types.LookupCache;
 import polyglot.types.MemberInstance;
 import polyglot.types.MethodInstance;
 import polyglot.types.NoMemberException;
@@ -78,6 +81,7 @@ import polyglot.types.PrimitiveType;
 import polyglot.types.ProcedureInstance;
 import polyglot.types.ReferenceType;
 import polyglot.types.SemanticException;
+import polyglot.types.TopLevelResolver;
 import polyglot.types.Type;
 import polyglot.types.reflect.ClassFile;
 import polyglot.types.reflect.ClassFileLazyClassInitializer;
@@ -1041,8 +1045,59 @@ public class JL5TypeSystem_c
         return pi.isVariableArity();
     }
 
+    /**
+     * Memoized results of {@code allAncestorsOf} for class declarations,
+     * valid while the ancestor cache's modification count is
+     * {@code allAncestorsModCount}.
+     */
+    protected Map<ParsedClassType, List<ReferenceType>> allAncestorsCache =
+            new IdentityHashMap<>();
+    protected int allAncestorsModCount;
+
+    @Override
+    public void initialize(TopLevelResolver loadedResolver,
+            ExtensionInfo extInfo) throws SemanticException {
+        synchronized (allAncestorsCache) {
+            allAncestorsCache.clear();
+        }
+        varargsArrayTypeCache.clear();
+        super.initialize(loadedResolver, extInfo);
+    }
+
     @Override
     public List<ReferenceType> allAncestorsOf(ReferenceType rt) {
+        if (!(rt instanceof ParsedClassType)) {
+            return computeAllAncestorsOf(rt);
+        }
+
+        ParsedClassType pct = (ParsedClassType) rt;
+        synchronized (allAncestorsCache) {
+            if (allAncestorsModCount != ancestorCache.modCount()) {
+                allAncestorsCache.clear();
+                allAncestorsModCount = ancestorCache.modCount();
+            }
+            List<ReferenceType> l = allAncestorsCache.get(pct);
+            if (l != null) {
+                return new ArrayList<>(l);
+            }
+        }
+
+        List<ReferenceType> l = computeAllAncestorsOf(rt);
+
+        // Only memoize if the ancestor cache tracks the hierarchy, so the
+        // result is discarded when any supertype in it changes.
+        if (ancestorCache.ancestors(pct) != null) {
+            synchronized (allAncestorsCache) {
+                if (allAncestorsModCount == ancestorCache.modCount()) {
+                    allAncestorsCache.put(pct, new ArrayList<>(l));
+                }
+            }
+        }
+
+        return l;
+    }
+
+    protected List<ReferenceType> computeAllAncestorsOf(ReferenceType rt) {
         Set<ReferenceType> ancestors = new LinkedHashSet<>();
         ancestors.add(rt);
         Set<? extends Type> superClasses;
@@ -1409,6 +1464,41 @@ public class JL5TypeSystem_c
 
     }
 
+    @Override
+    protected boolean isAncestorCacheable(ParsedClassType ancestor) {
+        // Whether a class descends from a generic class is not determined
+        // by declarations alone, because of raw types.
+        return !canBeRaw(ancestor);
+    }
+
+    @Override
+    protected ParsedClassType ancestorDeclaration(Type t) {
+        if (t instanceof JL5SubstClassType) {
+            return ((JL5SubstClassType) t).base();
+        }
+        if (t instanceof RawClass) {
+            return ((RawClass) t).base();
+        }
+        return super.ancestorDeclaration(t);
+    }
+
+    @Override
+    protected boolean addLookupDependencies(
+            Set<ParsedClassType> dependencies, Type t) {
+        if (!super.addLookupDependencies(dependencies, t)) {
+            return false;
+        }
+        if (t instanceof JL5SubstClassType) {
+            // Lookups may also depend on the supertypes of type arguments.
+            for (ReferenceType a : ((JL5SubstClassType) t).actuals()) {
+                if (!addLookupDependencies(dependencies, a)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean descendsFrom(Type child, Type ancestor) {
 //        System.err.println("jl5TS_C: descends from: " + child + " descended from " + ancestor);
@@ -1824,6 +1914,19 @@ public class JL5TypeSystem_c
         assert_(container);
         assert_(argTypes);
 
+        LookupCache.Key key = LookupCache.key("method",
+                                              name,
+                                              container,
+                                              argTypes,
+                                              typeArgs,
+                                              currClass,
+                                              expectedReturnType,
+                                              fromClient);
+        MethodInstance cached = (MethodInstance) cachedLookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
         List<? extends MethodInstance> acceptable =
                 findAcceptableMethods(container,
                                       name,
@@ -1870,6 +1973,7 @@ public class JL5TypeSystem_c
         }
 
         MethodInstance mi = maximal.iterator().next();
+        cacheLookup(key, mi);
         return mi;
     }
 
@@ -1893,6 +1997,18 @@ public class JL5TypeSystem_c
         assert_(container);
         assert_(argTypes);
 
+        LookupCache.Key key = LookupCache.key("constructor",
+                                              null,
+                                              container,
+                                              argTypes,
+                                              typeArgs,
+                                              currClass,
+                                              fromClient);
+        ConstructorInstance cached = (ConstructorInstance) cachedLookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
         List<ConstructorInstance> acceptable =
                 findAcceptableConstructors(container,
                                            argTypes,
@@ -1920,6 +2036,7 @@ public class JL5TypeSystem_c
         }
 
         ConstructorInstance ci = maximal.iterator().next();
+        cacheLookup(key, ci);
         return ci;
     }
 
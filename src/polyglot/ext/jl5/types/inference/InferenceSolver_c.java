@@ -25,12 +25,15 @@
  ******************************************************************************/
 package polyglot.ext.jl5.types.inference;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -41,6 +44,8 @@ import polyglot.ext.jl5.types.JL5ProcedureInstance;
 import polyglot.ext.jl5.types.JL5TypeSystem;
 import polyglot.ext.jl5.types.TypeVariable;
 import polyglot.ext.param.types.Subst;
+import polyglot.frontend.Stats;
+import polyglot.main.Report;
 import polyglot.types.MethodInstance;
 import polyglot.types.ReferenceType;
 import polyglot.types.Type;
@@ -75,7 +80,7 @@ public class InferenceSolver_c implements InferenceSolver {
     public boolean isTargetTypeVariable(Type t) {
         if (t instanceof TypeVariable) {
             TypeVariable tv = (TypeVariable) t;
-            return typeVariablesToSolve().contains(tv);
+            return slot(tv) >= 0;
         }
         return false;
     }
@@ -85,87 +90,99 @@ public class InferenceSolver_c implements InferenceSolver {
         return typeVariablesToSolve;
     }
 
+    /**
+     * Return the index of {@code t} in {@link #typeVariablesToSolve()}, or -1
+     * if {@code t} is not a variable to solve. The common case of the very
+     * type variable object is found without calling {@code equals}.
+     */
+    protected int slot(Type t) {
+        List<TypeVariable> tvs = typeVariablesToSolve();
+        for (int i = 0; i < tvs.size(); i++) {
+            if (tvs.get(i) == t) return i;
+        }
+        return tvs.indexOf(t);
+    }
+
+    /**
+     * The results of lub and glb computations, keyed by their bounds. A
+     * solver answers a single inference problem, which may be solved more
+     * than once with the same bounds.
+     */
+    private Map<List<ReferenceType>, Type> lubs = new HashMap<>();
+    private Map<List<ReferenceType>, Type> glbs = new HashMap<>();
+
     private Type[] solve(List<Constraint> constraints,
             boolean useSubtypeConstraints, boolean useSupertypeConstraints) {
-        List<EqualConstraint> equals = new ArrayList<>();
-        List<SubTypeConstraint> subs = new ArrayList<>();
-        List<SuperTypeConstraint> supers = new ArrayList<>();
-//        System.err.println("**** inference solver:");
-//        System.err.println("      constraints : " + constraints);
-//        System.err.println("      use subs? : " + useSubtypeConstraints
-//                + "   use sups? : " + useSupertypeConstraints);
-//        System.err.println("      variables : " + typeVariablesToSolve());
-
-        while (!constraints.isEmpty()) {
-            Constraint head = constraints.remove(0);
+        int n = typeVariablesToSolve().size();
+
+        // Irreducible constraints, bucketed by the slot of the type variable
+        // they constrain, in the order they are derived.
+        List<List<Type>> equals = new ArrayList<>(n);
+        List<Set<ReferenceType>> bounds = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            equals.add(null);
+            bounds.add(null);
+        }
+
+        // Simplification is deterministic, so a constraint that has already
+        // been seen contributes nothing new.
+        Set<ConstraintKey> seen = new HashSet<>();
+
+        Deque<Constraint> worklist = new ArrayDeque<>(constraints);
+        while (!worklist.isEmpty()) {
+            Constraint head = worklist.removeFirst();
+            if (!seen.add(new ConstraintKey(head))) continue;
             if (head.canSimplify()) {
                 List<Constraint> simps = head.simplify();
-                constraints.addAll(0, simps);
-            }
-            else {
-                if (head instanceof EqualConstraint) {
-                    EqualConstraint eq = (EqualConstraint) head;
-                    equals.add(eq);
-                }
-                else if (head instanceof SubTypeConstraint) {
-                    SubTypeConstraint sub = (SubTypeConstraint) head;
-                    subs.add(sub);
-                }
-                else if (head instanceof SuperTypeConstraint) {
-                    SuperTypeConstraint sup = (SuperTypeConstraint) head;
-                    supers.add(sup);
+                for (ListIterator<Constraint> it =
+                        simps.listIterator(simps.size()); it.hasPrevious();) {
+                    worklist.addFirst(it.previous());
                 }
+                continue;
             }
-        }
-//        System.err.println("      a equals : " + equals);
-//        System.err.println("      a subs   : " + subs);
-//        System.err.println("      a supers : " + supers);
-
-        Comparator<Constraint> comp = new Comparator<Constraint>() {
-            @Override
-            public int compare(Constraint o1, Constraint o2) {
-                return typeVariablesToSolve().indexOf(o1.formal)
-                        - typeVariablesToSolve().indexOf(o2.formal);
+
+            int i = slot(head.formal);
+            if (i < 0) continue;
+            if (head instanceof EqualConstraint) {
+                if (equals.get(i) == null)
+                    equals.set(i, new ArrayList<Type>(2));
+                equals.get(i).add(head.actual);
             }
-        };
-        Collections.sort(equals, comp);
-        Collections.sort(subs, comp);
-        Collections.sort(supers, comp);
-
-//        System.err.println("      equals : " + equals);
-//        System.err.println("      subs   : " + subs);
-//        System.err.println("      supers : " + supers);
-
-        Type[] solution = new Type[typeVariablesToSolve().size()];
-        for (EqualConstraint eq : equals) {
-            int i = typeVariablesToSolve().indexOf(eq.formal);
-            if ((solution[i] != null) && (!ts.equals(eq.actual, solution[i]))) {
-                // incompatible equality constraints!
-                // No solution.
-                return null;
+            else if (useSubtypeConstraints
+                    ? head instanceof SubTypeConstraint
+                    : head instanceof SuperTypeConstraint) {
+                if (head.actual.isReference()) {
+                    if (bounds.get(i) == null)
+                        bounds.set(i, new LinkedHashSet<ReferenceType>());
+                    bounds.get(i).add((ReferenceType) head.actual);
+                }
             }
-            else {
-                solution[i] = eq.actual;
+        }
+
+        Type[] solution = new Type[n];
+        for (int i = 0; i < n; i++) {
+            if (equals.get(i) == null) continue;
+            for (Type actual : equals.get(i)) {
+                if ((solution[i] != null) && (!ts.equals(actual, solution[i]))) {
+                    // incompatible equality constraints!
+                    // No solution.
+                    return null;
+                }
+                else {
+                    solution[i] = actual;
+                }
             }
         }
-        List<? extends Constraint> subSupConstraints =
-                useSubtypeConstraints ? subs : supers;
         for (int i = 0; i < solution.length; i++) {
-            if (solution[i] == null) {
+            if (solution[i] == null && bounds.get(i) != null) {
                 TypeVariable toSolve = typeVariablesToSolve().get(i);
-                Set<ReferenceType> bounds = new LinkedHashSet<>();
-                for (Constraint c : subSupConstraints) {
-                    if (c.formal.equals(toSolve) && c.actual.isReference()) {
-                        bounds.add((ReferenceType) c.actual);
-                    }
-                }
-                List<ReferenceType> u = new ArrayList<>(bounds);
+                List<ReferenceType> u = new ArrayList<>(bounds.get(i));
                 if (u.size() == 1) {
                     solution[i] = u.get(0);
                 }
                 else if (u.size() > 1) {
                     if (useSubtypeConstraints) {
-                        solution[i] = ts.lub(Position.compilerGenerated(), u);
+                        solution[i] = lub(u);
                         // check that the bounds hold in the presence of lubs
                         if (!solution[i].isSubtype(toSolve.upperBound())) {
                             return null;
@@ -173,17 +190,59 @@ public class InferenceSolver_c implements InferenceSolver {
                     }
                     else {
                         // supertype Constraints
-                        solution[i] = ts.glb(Position.compilerGenerated(), u);
+                        solution[i] = glb(u);
                     }
                 }
             }
         }
 
-//        System.err.println("      Solution : " + Arrays.asList(solution));
-
         return solution;
     }
 
+    private Type lub(List<ReferenceType> u) {
+        Type t = lubs.get(u);
+        if (t == null) {
+            t = ts.lub(Position.compilerGenerated(), u);
+            lubs.put(u, t);
+        }
+        return t;
+    }
+
+    private Type glb(List<ReferenceType> u) {
+        Type t = glbs.get(u);
+        if (t == null) {
+            t = ts.glb(Position.compilerGenerated(), u);
+            glbs.put(u, t);
+        }
+        return t;
+    }
+
+    /**
+     * Identifies a constraint by its kind and the identities of its types.
+     */
+    private static final class ConstraintKey {
+        private final Constraint c;
+
+        ConstraintKey(Constraint c) {
+            this.c = c;
+        }
+
+        @Override
+        public int hashCode() {
+            return c.getClass().hashCode()
+                    ^ 31 * System.identityHashCode(c.actual)
+                    ^ System.identityHashCode(c.formal);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ConstraintKey)) return false;
+            Constraint d = ((ConstraintKey) o).c;
+            return c.getClass() == d.getClass() && c.actual == d.actual
+                    && c.formal == d.formal;
+        }
+    }
+
     private List<Constraint> getInitialConstraints() {
         List<Constraint> constraints = new ArrayList<>();
         int numFormals = formalTypes.size();
@@ -226,6 +285,23 @@ public class InferenceSolver_c implements InferenceSolver {
 
     @Override
     public Map<TypeVariable, ReferenceType> solve(Type expectedReturnType) {
+        if (!Report.should_report(Report.time, 1)) {
+            return solveImpl(expectedReturnType);
+        }
+        long start = System.nanoTime();
+        try {
+            return solveImpl(expectedReturnType);
+        }
+        finally {
+            long elapsed = System.nanoTime() - start;
+            Stats stats = ts.extensionInfo().getStats();
+            stats.accumCounter("type inference time (ns)", elapsed);
+            stats.accumCounter("type inference solves", 1);
+        }
+    }
+
+    protected Map<TypeVariable, ReferenceType> solveImpl(
+            Type expectedReturnType) {
         // first, solve without considering the return type
         Type[] solution = this.solve(getInitialConstraints(), true, false);
 
@@ -97,7 +97,8 @@ public class JL7ExtensionInfo extends JL5ExtensionInfo {
     public Parser parser(Reader reader, Source source, ErrorQueue eq) {
         reader = new polyglot.lex.EscapedUnicodeReader(reader);
 
-        polyglot.lex.Lexer lexer = new Lexer_c(reader, source, eq);
+        polyglot.lex.Lexer lexer = new Lexer_c(reader, source, eq,
+                                               compiler().identifiers());
         polyglot.parse.BaseParser parser = new Grm(lexer, ts, nf, eq);
 
         return new CupParser(parser, source, eq);
@@ -44,6 +44,7 @@ import polyglot.ext.jl7.types.inference.JL7InferenceSolver_c;
 import polyglot.main.Report;
 import polyglot.types.ClassType;
 import polyglot.types.ConstructorInstance;
+import polyglot.types.LookupCache;
 import polyglot.types.NoMemberException;
 import polyglot.types.ProcedureInstance;
 import polyglot.types.ReferenceType;
@@ -88,6 +89,19 @@ public class JL7TypeSystem_c extends JL5TypeSystem_c implements JL7TypeSystem {
         assert_(container);
         assert_(argTypes);
 
+        LookupCache.Key key = LookupCache.key("constructor",
+                                              null,
+                                              container,
+                                              argTypes,
+                                              typeArgs,
+                                              currClass,
+                                              expectedObjectType,
+                                              fromClient);
+        ConstructorInstance cached = (ConstructorInstance) cachedLookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
         List<ConstructorInstance> acceptable =
                 findAcceptableConstructors(container,
                                            argTypes,
@@ -129,6 +143,7 @@ public class JL7TypeSystem_c extends JL5TypeSystem_c implements JL7TypeSystem {
         }
 
         ConstructorInstance ci = maximal.iterator().next();
+        cacheLookup(key, ci);
         return ci;
     }
 
@@ -30,9 +30,14 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import polyglot.frontend.ExtensionInfo;
 import polyglot.types.ClassType;
 import polyglot.types.SemanticException;
+import polyglot.types.TopLevelResolver;
 import polyglot.types.Type;
 import polyglot.types.TypeObject;
 import polyglot.types.TypeSystem_c;
@@ -45,7 +50,42 @@ import polyglot.util.Position;
 public abstract class ParamTypeSystem_c<Formal extends Param, Actual extends TypeObject>
         extends TypeSystem_c implements ParamTypeSystem<Formal, Actual> {
     protected Map<Map<Formal, ? extends Actual>, Subst<Formal, Actual>> substCache =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
+
+    /**
+     * Substitutions keyed by the identities of their formals and actuals.
+     * This table is consulted before {@code substCache}, so that looking up
+     * a substitution whose actuals are themselves canonical does not hash
+     * the actuals structurally.
+     */
+    protected ConcurrentMap<IdentityKey, Subst<Formal, Actual>> canonicalSubsts =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Instantiations keyed by the parametric class and the identities of
+     * the actuals, in order. Instantiating a class on the same actuals
+     * returns the same type object.
+     *
+     * The position of an instantiation is not part of its key.  An
+     * instantiated class type always has the position of the parametric
+     * class, whatever position it is instantiated at.
+     */
+    protected ConcurrentMap<IdentityKey, ClassType> canonicalInstantiations =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The substitution and instantiation tables are not bounded, but they
+     * hold only types of the current compilation: they are cleared whenever
+     * the type system is initialized, which happens once per compilation.
+     */
+    @Override
+    public void initialize(TopLevelResolver loadedResolver,
+            ExtensionInfo extInfo) throws SemanticException {
+        substCache.clear();
+        canonicalSubsts.clear();
+        canonicalInstantiations.clear();
+        super.initialize(loadedResolver, extInfo);
+    }
 
     @Override
     public MuPClass<Formal, Actual> mutablePClass(Position pos) {
@@ -88,6 +128,22 @@ public abstract class ParamTypeSystem_c<Formal extends Param, Actual extends Typ
      */
     protected ClassType uncheckedInstantiate(Position pos,
             PClass<Formal, Actual> base, List<? extends Actual> actuals) {
+        Object[] objs = new Object[actuals.size() + 1];
+        objs[0] = base;
+        for (int k = 0; k < actuals.size(); k++)
+            objs[k + 1] = actuals.get(k);
+        IdentityKey key = new IdentityKey(objs, true);
+        ClassType inst = canonicalInstantiations.get(key);
+        if (inst == null) {
+            inst = substInstantiate(pos, base, actuals);
+            ClassType prev = canonicalInstantiations.putIfAbsent(key, inst);
+            if (prev != null) inst = prev;
+        }
+        return inst;
+    }
+
+    private ClassType substInstantiate(Position pos,
+            PClass<Formal, Actual> base, List<? extends Actual> actuals) {
         Map<Formal, Actual> substMap = new HashMap<>();
         Iterator<Formal> i = base.formals().iterator();
         Iterator<? extends Actual> j = actuals.iterator();
@@ -122,10 +178,22 @@ public abstract class ParamTypeSystem_c<Formal extends Param, Actual extends Typ
     @Override
     public final Subst<Formal, Actual> subst(
             Map<Formal, ? extends Actual> substMap) {
-        Subst<Formal, Actual> subst = substCache.get(substMap);
+        Object[] objs = new Object[2 * substMap.size()];
+        int k = 0;
+        for (Entry<Formal, ? extends Actual> e : substMap.entrySet()) {
+            objs[k++] = e.getKey();
+            objs[k++] = e.getValue();
+        }
+        IdentityKey key = new IdentityKey(objs, false);
+        Subst<Formal, Actual> subst = canonicalSubsts.get(key);
         if (subst == null) {
-            subst = substImpl(substMap);
-            substCache.put(substMap, subst);
+            subst = substCache.get(substMap);
+            if (subst == null) {
+                subst = substImpl(substMap);
+                substCache.put(substMap, subst);
+            }
+            Subst<Formal, Actual> prev = canonicalSubsts.putIfAbsent(key, subst);
+            if (prev != null) subst = prev;
         }
         return subst;
     }
@@ -134,4 +202,61 @@ public abstract class ParamTypeSystem_c<Formal extends Param, Actual extends Typ
             Map<Formal, ? extends Actual> substMap) {
         return new Subst_c<>(this, substMap);
     }
+
+    /**
+     * A key that compares a sequence of objects by identity. Ordered keys
+     * compare element by element; unordered keys hold (key, value) pairs of
+     * a map and compare them as sets of pairs.
+     */
+    protected static final class IdentityKey {
+        private final Object[] objs;
+        private final boolean ordered;
+        private final int hash;
+
+        protected IdentityKey(Object[] objs, boolean ordered) {
+            this.objs = objs;
+            this.ordered = ordered;
+            int h = 0;
+            if (ordered) {
+                for (Object o : objs)
+                    h = 31 * h + System.identityHashCode(o);
+            }
+            else {
+                for (int i = 0; i < objs.length; i += 2)
+                    h += 31 * System.identityHashCode(objs[i])
+                            ^ System.identityHashCode(objs[i + 1]);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof IdentityKey)) return false;
+            IdentityKey that = (IdentityKey) o;
+            if (hash != that.hash || ordered != that.ordered
+                    || objs.length != that.objs.length) return false;
+            if (ordered) {
+                for (int i = 0; i < objs.length; i++)
+                    if (objs[i] != that.objs[i]) return false;
+                return true;
+            }
+            // Substitution maps are small, so a quadratic match is cheap.
+            // Formals are distinct, so no pair is matched twice.
+            outer: for (int i = 0; i < objs.length; i += 2) {
+                for (int j = 0; j < that.objs.length; j += 2) {
+                    if (objs[i] == that.objs[j]) {
+                        if (objs[i + 1] != that.objs[j + 1]) return false;
+                        continue outer;
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+    }
 }
@@ -215,6 +215,7 @@ public class SubstClassType_c<Formal extends Param, Actual extends TypeObject>
 
     @Override
     public boolean typeEqualsImpl(Type t) {
+        if (t == this) return true;
         if (t instanceof SubstType) {
             @SuppressWarnings("unchecked")
             SubstType<Formal, Actual> x = (SubstType<Formal, Actual>) t;
@@ -225,6 +226,7 @@ public class SubstClassType_c<Formal extends Param, Actual extends TypeObject>
 
     @Override
     public boolean equalsImpl(TypeObject t) {
+        if (t == this) return true;
         if (t instanceof SubstType) {
             @SuppressWarnings("unchecked")
             SubstType<Formal, Actual> x = (SubstType<Formal, Actual>) t;
@@ -0,0 +1,338 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.filemanager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * An index of the entries of a zip or jar file, as of the time the file was
+ * last modified.
+ *
+ * The file is memory-mapped and its central directory is read once into a
+ * map from entry names to directory records, so entries can be read
+ * without opening the file again.  Archives that cannot be mapped, such as
+ * zip64 archives, are only indexed by package.  No file handle is kept
+ * open either way.
+ */
+public class ArchiveIndex {
+    protected static final int LOC_SIG = 0x04034b50;
+    protected static final int CEN_SIG = 0x02014b50;
+    protected static final int END_SIG = 0x06054b50;
+    protected static final int LOC_HDR = 30;
+    protected static final int CEN_HDR = 46;
+    protected static final int END_HDR = 22;
+    protected static final int MAX_COMMENT = 0xffff;
+
+    protected static final int STORED = 0;
+    protected static final int DEFLATED = 8;
+
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+    protected final File file;
+    protected final long lastModified;
+    protected final long length;
+
+    /** Package names, separated by '/' */
+    protected final Set<String> packages;
+
+    /**
+     * Map from entry names to the offsets of their central directory
+     * records in {@code buffer}, or null if the file is not mapped.
+     */
+    protected final Map<String, Integer> entries;
+
+    /** Read-only little-endian view of the file, or null. */
+    protected final ByteBuffer buffer;
+
+    protected ArchiveIndex(File file, long lastModified, long length,
+            Set<String> packages, Map<String, Integer> entries,
+            ByteBuffer buffer) {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.packages = packages;
+        this.entries = entries;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Index the zip or jar file {@code f}.  If {@code f} does not exist,
+     * the index is empty.
+     */
+    public static ArchiveIndex read(File f) throws IOException {
+        long lastModified = f.lastModified();
+        long length = f.length();
+        Set<String> packages = new HashSet<>();
+
+        if (!f.exists()) {
+            Map<String, Integer> entries = Collections.emptyMap();
+            return new ArchiveIndex(f,
+                                    lastModified,
+                                    length,
+                                    packages,
+                                    entries,
+                                    null);
+        }
+
+        if (length <= Integer.MAX_VALUE) {
+            ByteBuffer buffer = map(f, length);
+            Map<String, Integer> entries = readCentralDirectory(buffer);
+            if (entries != null) {
+                for (String n : entries.keySet()) {
+                    addPackages(packages, n);
+                }
+                return new ArchiveIndex(f,
+                                        lastModified,
+                                        length,
+                                        packages,
+                                        entries,
+                                        buffer);
+            }
+        }
+
+        // Not a layout we can read directly; just record the packages.
+        try (ZipFile zip = new ZipFile(f)) {
+            Enumeration<? extends ZipEntry> i = zip.entries();
+            while (i.hasMoreElements()) {
+                addPackages(packages, i.nextElement().getName());
+            }
+        }
+        return new ArchiveIndex(f, lastModified, length, packages, null, null);
+    }
+
+    protected static ByteBuffer map(File f, long length) throws IOException {
+        try (FileChannel ch =
+                FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer b =
+                    ch.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            b.order(ByteOrder.LITTLE_ENDIAN);
+            return b;
+        }
+    }
+
+    /**
+     * Return a map from entry names to central directory record offsets,
+     * or null if the archive uses features not supported here.
+     */
+    protected static Map<String, Integer> readCentralDirectory(ByteBuffer b)
+            throws ZipException {
+        int end = findEnd(b);
+        if (end < 0) {
+            throw new ZipException("zip END header not found");
+        }
+
+        int count = b.getShort(end + 10) & 0xffff;
+        long cenSize = b.getInt(end + 12) & 0xffffffffL;
+        long cenOffset = b.getInt(end + 16) & 0xffffffffL;
+        if (count == 0xffff || cenSize == 0xffffffffL
+                || cenOffset == 0xffffffffL) {
+            // zip64
+            return null;
+        }
+        if (cenOffset + cenSize > end) {
+            throw new ZipException("invalid zip central directory");
+        }
+
+        Map<String, Integer> entries = new HashMap<>(count * 4 / 3 + 1);
+        int p = (int) cenOffset;
+        for (int i = 0; i < count; i++) {
+            if (p + CEN_HDR > end || b.getInt(p) != CEN_SIG) {
+                throw new ZipException("invalid zip central directory");
+            }
+            int nameLength = b.getShort(p + 28) & 0xffff;
+            int extraLength = b.getShort(p + 30) & 0xffff;
+            int commentLength = b.getShort(p + 32) & 0xffff;
+            entries.put(string(b, p + CEN_HDR, nameLength), p);
+            p += CEN_HDR + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    protected static int findEnd(ByteBuffer b) {
+        int limit = Math.max(0, b.limit() - END_HDR - MAX_COMMENT);
+        for (int p = b.limit() - END_HDR; p >= limit; p--) {
+            if (b.getInt(p) == END_SIG) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    protected static String string(ByteBuffer b, int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer d = b.duplicate();
+        // Call Buffer.position, which ByteBuffer only overrides from Java 9.
+        ((Buffer) d).position(offset);
+        d.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    protected static void addPackages(Set<String> packages, String n) {
+        int slash = n.indexOf('/');
+        while (slash >= 0) {
+            packages.add(n.substring(0, slash));
+            slash = n.indexOf('/', slash + 1);
+        }
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /** Return true if the file has not changed on disk since it was read. */
+    public boolean isCurrent() {
+        return file.lastModified() == lastModified && file.length() == length;
+    }
+
+    /**
+     * Return true if the archive contains the package {@code name}, with
+     * components separated by '/'.
+     */
+    public boolean containsPackage(String name) {
+        return packages.contains(name);
+    }
+
+    /** The packages in the archive, with components separated by '/'. */
+    public Set<String> packages() {
+        return Collections.unmodifiableSet(packages);
+    }
+
+    /** The names of the entries in the archive.  The archive must be mapped. */
+    public Set<String> entryNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /** Return true if the entries of the archive can be read directly. */
+    public boolean isMapped() {
+        return entries != null;
+    }
+
+    /**
+     * Return true if the archive contains the entry {@code name}.  The
+     * archive must be mapped.
+     */
+    public boolean containsEntry(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * Return the contents of the entry {@code name}, or null if there is
+     * no such entry.  The archive must be mapped.  The contents are copied
+     * out of the mapped file, since class files are read from arrays.
+     */
+    public byte[] readEntry(String name) throws IOException {
+        Integer cen = entries.get(name);
+        if (cen == null) {
+            return null;
+        }
+
+        ByteBuffer b = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int p = cen;
+        int method = b.getShort(p + 10) & 0xffff;
+        long compressedSize = b.getInt(p + 20) & 0xffffffffL;
+        long size = b.getInt(p + 24) & 0xffffffffL;
+        long loc = b.getInt(p + 42) & 0xffffffffL;
+
+        if (loc + LOC_HDR > b.limit() || b.getInt((int) loc) != LOC_SIG) {
+            throw new ZipException("invalid zip entry " + name + " in "
+                    + file);
+        }
+        long data =
+                loc + LOC_HDR + (b.getShort((int) loc + 26) & 0xffff)
+                        + (b.getShort((int) loc + 28) & 0xffff);
+        if (data + compressedSize > b.limit() || size > Integer.MAX_VALUE) {
+            throw new ZipException("invalid zip entry " + name + " in "
+                    + file);
+        }
+
+        // A stored entry is returned as this copy.  A deflated entry is
+        // copied before inflating it, since Inflater only reads arrays
+        // before Java 11.
+        byte[] in = new byte[(int) compressedSize];
+        ((Buffer) b).position((int) data);
+        b.get(in);
+
+        if (method == STORED) {
+            return in;
+        }
+        if (method != DEFLATED) {
+            throw new ZipException("unsupported compression method "
+                    + method + " for " + name + " in " + file);
+        }
+
+        byte[] out = new byte[(int) size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(in);
+            boolean padded = false;
+            int n = 0;
+            while (n < out.length) {
+                int k = inflater.inflate(out, n, out.length - n);
+                n += k;
+                if (k == 0) {
+                    if (!inflater.needsInput() || padded) {
+                        break;
+                    }
+                    // In nowrap mode, the inflater may need a dummy byte
+                    // after the compressed data.
+                    inflater.setInput(new byte[1]);
+                    padded = true;
+                }
+            }
+            if (n != out.length) {
+                throw new ZipException("truncated zip entry " + name
+                        + " in " + file);
+            }
+        }
+        catch (DataFormatException e) {
+            throw new ZipException("invalid compressed data for " + name
+                    + " in " + file + ": " + e.getMessage());
+        }
+        finally {
+            inflater.end();
+        }
+        return out;
+    }
+}
@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.filemanager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.JavaFileObject.Kind;
+
+import polyglot.main.Report;
+
+/**
+ * A {@code ClassFileSnapshot} keeps the class files that a compilation
+ * loaded from the archives on the boot class path, so that the next
+ * compilation with the same boot class path can create the same system
+ * types without indexing the archives.
+ * <p>
+ * Besides the class files themselves, a snapshot records the packages on
+ * the boot class path, and the names of all the classes in the packages of
+ * the class files it holds, so that looking for a class that is not in one
+ * of those packages does not need the archives either.  A snapshot is only
+ * used while none of the archives has changed since it was taken.
+ */
+public class ClassFileSnapshot {
+    private static final int MAGIC = 0x4a4c4253; // "JLBS"
+
+    /** The boot class path the snapshot was taken from. */
+    protected final List<File> path;
+
+    /** Packages on the boot class path, with components separated by '/'. */
+    protected final Set<String> packages;
+
+    /** Packages whose class entries are all in {@code entries}. */
+    protected final Set<String> listedPackages;
+
+    /** The class entries of the listed packages. */
+    protected final Set<String> entries;
+
+    /** The contents of the class files kept, by entry name. */
+    protected final Map<String, byte[]> classes;
+
+    /** The archives the class files kept were read from, by entry name. */
+    protected final Map<String, File> archives;
+
+    protected ClassFileSnapshot(List<File> path, Set<String> packages,
+            Set<String> listedPackages, Set<String> entries,
+            Map<String, byte[]> classes, Map<String, File> archives) {
+        this.path = path;
+        this.packages = packages;
+        this.listedPackages = listedPackages;
+        this.entries = entries;
+        this.classes = classes;
+        this.archives = archives;
+    }
+
+    /**
+     * Read the snapshot in {@code file}.  Return null if there is none, or
+     * if it was not taken from {@code path} as it is now.
+     */
+    public static ClassFileSnapshot read(File file, List<File> path) {
+        if (!file.isFile()) return null;
+
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) return null;
+
+            int n = in.readInt();
+            if (n != path.size()) return null;
+            List<File> files = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                File f = new File(in.readUTF());
+                long lastModified = in.readLong();
+                long length = in.readLong();
+                if (!f.equals(path.get(i).getAbsoluteFile())
+                        || f.lastModified() != lastModified
+                        || f.length() != length) {
+                    if (Report.should_report(TOPIC, 2))
+                        Report.report(2, "Stale snapshot " + file + ": " + f);
+                    return null;
+                }
+                files.add(f);
+            }
+
+            Set<String> packages = readStrings(in);
+            Set<String> listedPackages = readStrings(in);
+            Set<String> entries = readStrings(in);
+
+            n = in.readInt();
+            Map<String, byte[]> classes = new HashMap<>(n * 2);
+            Map<String, File> archives = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                String entry = in.readUTF();
+                File archive = files.get(in.readInt());
+                byte[] b = new byte[in.readInt()];
+                in.readFully(b);
+                classes.put(entry, b);
+                archives.put(entry, archive);
+            }
+
+            if (Report.should_report(TOPIC, 1))
+                Report.report(1, "Read snapshot " + file + " with " + n
+                        + " class files");
+
+            return new ClassFileSnapshot(files,
+                                         packages,
+                                         listedPackages,
+                                         entries,
+                                         classes,
+                                         archives);
+        }
+        catch (IOException e) {
+            if (Report.should_report(TOPIC, 1))
+                Report.report(1, "Unable to read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    protected static Set<String> readStrings(DataInputStream in)
+            throws IOException {
+        int n = in.readInt();
+        Set<String> s = new HashSet<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            s.add(in.readUTF());
+        }
+        return s;
+    }
+
+    protected static void writeStrings(DataOutputStream out,
+            Collection<String> s) throws IOException {
+        out.writeInt(s.size());
+        for (String e : s) {
+            out.writeUTF(e);
+        }
+    }
+
+    /**
+     * Return true if the package {@code name}, with components separated by
+     * '/', is on the boot class path.
+     */
+    public boolean containsPackage(String name) {
+        return packages.contains(name);
+    }
+
+    /**
+     * Return TRUE if the snapshot keeps the class file {@code entryName},
+     * FALSE if the boot class path does not have it, or null if the class
+     * file must be looked for on the boot class path itself.  The last is
+     * the case for a class file of a listed package that the snapshot does
+     * not keep.
+     */
+    public Boolean containsEntry(String entryName) {
+        if (classes.containsKey(entryName)) return Boolean.TRUE;
+        String p = packageOf(entryName);
+        if (listedPackages.contains(p)) {
+            return entries.contains(entryName) ? null : Boolean.FALSE;
+        }
+        if (!packages.contains(p)) return Boolean.FALSE;
+        return null;
+    }
+
+    /**
+     * Return the class file {@code entryName}, or null if the snapshot does
+     * not keep it.
+     */
+    public ClassPathFileObject fileObject(String entryName) {
+        File archive = archives.get(entryName);
+        if (archive == null) return null;
+        return new ClassPathFileObject(archive,
+                                       entryName,
+                                       classes.get(entryName));
+    }
+
+    /** Return the contents of the class file {@code entryName}. */
+    public byte[] bytes(String entryName) {
+        return classes.get(entryName);
+    }
+
+    /** The names of the class files kept. */
+    public Set<String> entryNames() {
+        return classes.keySet();
+    }
+
+    protected static String packageOf(String entryName) {
+        int slash = entryName.lastIndexOf('/');
+        return slash < 0 ? "" : entryName.substring(0, slash);
+    }
+
+    /**
+     * Take a snapshot of the class files {@code entryNames} on the boot class
+     * path {@code path} and write it to {@code file}.  Nothing is written
+     * if the path has entries other than archives.  Failures to write the
+     * snapshot are reported but otherwise ignored.
+     */
+    public static void write(File file, List<File> path,
+            Collection<String> entryNames) {
+        try {
+            List<ArchiveIndex> indexes = new ArrayList<>(path.size());
+            for (File f : path) {
+                if (f.exists() && !ExtFileManager.isArchive(f)) {
+                    if (Report.should_report(TOPIC, 1))
+                        Report.report(1, "Not writing snapshot " + file
+                                + ": " + f + " is not an archive");
+                    return;
+                }
+                ArchiveIndex index = ExtFileManager.archiveIndex(f);
+                if (f.exists() && !index.isMapped()) return;
+                indexes.add(index);
+            }
+
+            // List each package of a class kept, and its enclosing packages.
+            Set<String> listedPackages = new HashSet<>();
+            listedPackages.add("");
+            for (String e : entryNames) {
+                String p = packageOf(e);
+                while (listedPackages.add(p)) {
+                    p = packageOf(p);
+                }
+            }
+
+            Set<String> packages = new HashSet<>();
+            Set<String> entries = new HashSet<>();
+            for (ArchiveIndex index : indexes) {
+                packages.addAll(index.packages());
+                for (String e : index.entryNames()) {
+                    if (e.endsWith(Kind.CLASS.extension)
+                            && listedPackages.contains(packageOf(e))) {
+                        entries.add(e);
+                    }
+                }
+            }
+
+            File dir = file.getAbsoluteFile().getParentFile();
+            Files.createDirectories(dir.toPath());
+
+            // Write to a temporary file and rename it, so that a concurrent
+            // compilation never reads a partly written snapshot.
+            File tmp = File.createTempFile("snap", ".tmp", dir);
+            int n = 0;
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(indexes.size());
+                for (ArchiveIndex index : indexes) {
+                    File f = index.file().getAbsoluteFile();
+                    out.writeUTF(f.getPath());
+                    out.writeLong(f.lastModified());
+                    out.writeLong(f.length());
+                }
+                writeStrings(out, packages);
+                writeStrings(out, listedPackages);
+                writeStrings(out, entries);
+
+                List<String> kept = new ArrayList<>();
+                List<Integer> from = new ArrayList<>();
+                List<byte[]> contents = new ArrayList<>();
+                for (String e : entryNames) {
+                    for (int i = 0; i < indexes.size(); i++) {
+                        ArchiveIndex index = indexes.get(i);
+                        if (index.isMapped() && index.containsEntry(e)) {
+                            kept.add(e);
+                            from.add(i);
+                            contents.add(index.readEntry(e));
+                            break;
+                        }
+                    }
+                }
+                out.writeInt(kept.size());
+                for (int i = 0; i < kept.size(); i++) {
+                    out.writeUTF(kept.get(i));
+                    out.writeInt(from.get(i));
+                    out.writeInt(contents.get(i).length);
+                    out.write(contents.get(i));
+                }
+                n = kept.size();
+            }
+            Files.move(tmp.toPath(),
+                       file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+
+            if (Report.should_report(TOPIC, 1))
+                Report.report(1, "Wrote snapshot " + file + " with " + n
+                        + " class files");
+        }
+        catch (IOException e) {
+            if (Report.should_report(TOPIC, 1))
+                Report.report(1, "Unable to write " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static final String TOPIC = "snapshot";
+}
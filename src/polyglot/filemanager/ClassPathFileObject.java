@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.filemanager;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Files;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.tools.JavaFileObject;
+
+/**
+ * A class file found by {@code ExtFileManager} in a directory or in an
+ * indexed archive on a class path.  The contents are read on each request
+ * and are not retained, unless they were kept in a
+ * {@code ClassFileSnapshot}.
+ */
+public class ClassPathFileObject implements JavaFileObject {
+    protected final URI uri;
+    /** The index of the archive containing the class file, or null. */
+    protected final ArchiveIndex archive;
+    /** The archive containing the class file, or null for a directory. */
+    protected final File archiveFile;
+    /** The entry name in the archive, or null for a directory. */
+    protected final String entryName;
+    /** The class file, for a directory. */
+    protected final File file;
+    /** The contents of the class file, if taken from a snapshot. */
+    protected final byte[] contents;
+
+    /** Create a file object for a class file in a directory. */
+    public ClassPathFileObject(File file) {
+        this.uri = file.toURI();
+        this.archive = null;
+        this.archiveFile = null;
+        this.entryName = null;
+        this.file = file;
+        this.contents = null;
+    }
+
+    /** Create a file object for the entry {@code entryName} of an archive. */
+    public ClassPathFileObject(ArchiveIndex archive, String entryName) {
+        this.uri =
+                URI.create("jar:" + archive.file().toURI() + "!/" + entryName);
+        this.archive = archive;
+        this.archiveFile = archive.file();
+        this.entryName = entryName;
+        this.file = null;
+        this.contents = null;
+    }
+
+    /**
+     * Create a file object for the entry {@code entryName} of the archive
+     * {@code archiveFile}, whose contents have already been read.
+     */
+    public ClassPathFileObject(File archiveFile, String entryName,
+            byte[] contents) {
+        this.uri = URI.create("jar:" + archiveFile.toURI() + "!/" + entryName);
+        this.archive = null;
+        this.archiveFile = archiveFile;
+        this.entryName = entryName;
+        this.file = null;
+        this.contents = contents;
+    }
+
+    /** Return the contents of the class file. */
+    public byte[] bytes() throws IOException {
+        if (contents != null) {
+            return contents;
+        }
+        if (archive != null) {
+            byte[] b = archive.readEntry(entryName);
+            if (b == null) {
+                throw new IOException("Entry " + entryName + " not found in "
+                        + archive.file());
+            }
+            return b;
+        }
+        return Files.readAllBytes(file.toPath());
+    }
+
+    @Override
+    public URI toUri() {
+        return uri;
+    }
+
+    @Override
+    public String getName() {
+        return archiveFile != null
+                ? archiveFile.getPath() + "(" + entryName + ")"
+                : file.getPath();
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        return new ByteArrayInputStream(bytes());
+    }
+
+    @Override
+    public OutputStream openOutputStream() throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Reader openReader(boolean ignoreEncodingErrors) throws IOException {
+        return new InputStreamReader(openInputStream());
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors)
+            throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Writer openWriter() throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean delete() {
+        return false;
+    }
+
+    @Override
+    public Kind getKind() {
+        return Kind.CLASS;
+    }
+
+    @Override
+    public boolean isNameCompatible(String simpleName, Kind kind) {
+        String baseName = simpleName + kind.extension;
+        return kind == Kind.CLASS
+                && (uri.getSchemeSpecificPart().endsWith("/" + baseName));
+    }
+
+    @Override
+    public NestingKind getNestingKind() {
+        return null;
+    }
+
+    @Override
+    public Modifier getAccessLevel() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+
+    @Override
+    public long getLastModified() {
+        return archiveFile != null
+                ? archiveFile.lastModified()
+                : file.lastModified();
+    }
+}
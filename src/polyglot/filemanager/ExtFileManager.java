@@ -35,16 +35,16 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Enumeration;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarFile;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.tools.FileObject;
 import javax.tools.ForwardingJavaFileManager;
@@ -62,6 +62,7 @@ import polyglot.main.Report;
 import polyglot.types.reflect.ClassFile;
 import polyglot.util.CollectionUtil;
 import polyglot.util.InternalCompilerError;
+import polyglot.util.LRUMap;
 import polyglot.util.StringUtil;
 
 /**
@@ -78,13 +79,26 @@ public class ExtFileManager
     /** Map of sources already loaded */
     protected final Map<String, FileSource> loadedSources;
     /** A cache for package look ups */
-    protected static final Map<String, Boolean> packageCache = new HashMap<>();
+    protected final Map<String, Boolean> packageCache;
     /** A cache for the class files that don't exist */
-    protected static final Set<String> nocache = new HashSet<>();
+    protected final Set<String> nocache;
+    /** The value of {@code archiveGeneration} when the caches were filled */
+    protected volatile int cacheGeneration;
 
-    protected static final Map<File, Object> zipCache = new HashMap<>();
+    /** The maximum number of entries in each per-manager cache */
+    protected static final int CACHE_SIZE = 16 * 1024;
 
-    protected static final Object not_found = new Object();
+    /**
+     * Index of the packages in each zip or jar file on a path, shared by
+     * all file managers.  An index is rebuilt if its file has changed on
+     * disk since it was read.
+     */
+    protected static final Map<File, ArchiveIndex> archiveIndexes =
+            Collections.synchronizedMap(new LRUMap<File, ArchiveIndex>(256));
+
+    /** Incremented whenever an indexed archive changes on disk */
+    protected static final AtomicInteger archiveGeneration =
+            new AtomicInteger();
 
     protected static final int BUF_SIZE = 1024 * 8;
 
@@ -101,7 +115,8 @@ public class ExtFileManager
 
     /**
      * Map for storing in-memory FileObjects and associated fully qualified
-     * names
+     * names.  The pipelined post-compiler writes class files into it while
+     * the compiler writes source files.
      */
     protected final Map<Location, Map<String, JavaFileObject>> objectMap;
 
@@ -119,25 +134,53 @@ public class ExtFileManager
      */
     protected final boolean inMemory;
 
-    protected static List<Location> default_locations;
+    /** Locations searched for class files, in increasing priority */
+    protected final List<Location> defaultLocations;
+
+    /**
+     * The snapshot of the boot class path, or null if there is none.  Read
+     * on first use.
+     */
+    protected ClassFileSnapshot snapshot;
+    protected boolean snapshotRead;
+
+    /** Class file entries loaded from archives on the boot class path. */
+    protected final Set<String> bootEntries;
 
     public ExtFileManager(ExtensionInfo extInfo) {
         super(javaCompiler.getStandardFileManager(null, null, null));
         this.extInfo = extInfo;
         loadedSources = new HashMap<>();
-        objectMap = new HashMap<>();
+        objectMap = new ConcurrentHashMap<>();
         inMemory = extInfo.getOptions().noOutputToFS;
-        List<Location> defaultLocations = extInfo.defaultLocations();
-        if (!defaultLocations.equals(default_locations)) {
-            default_locations = defaultLocations;
-            clearCache();
-        }
+        defaultLocations = extInfo.defaultLocations();
+        packageCache =
+                Collections.synchronizedMap(new LRUMap<String, Boolean>(CACHE_SIZE));
+        nocache =
+                Collections.newSetFromMap(Collections.synchronizedMap(new LRUMap<String, Boolean>(CACHE_SIZE)));
+        cacheGeneration = archiveGeneration.get();
+        bootEntries =
+                Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     }
 
-    protected void clearCache() {
+    /**
+     * Discard the cached results of package and class file look ups.
+     */
+    public void clearCache() {
         packageCache.clear();
         nocache.clear();
-        zipCache.clear();
+    }
+
+    /**
+     * Discard the cached look ups if an archive on some path has changed on
+     * disk since they were made.
+     */
+    protected void validateCache() {
+        int generation = archiveGeneration.get();
+        if (cacheGeneration != generation) {
+            clearCache();
+            cacheGeneration = generation;
+        }
     }
 
     @Override
@@ -215,10 +258,13 @@ public class ExtFileManager
             URI src = URI.create("file:///" + key);
             JavaFileObject jfo =
                     new ExtFileObject(src, kindFromExtension(relativeName));
-            Map<String, JavaFileObject> locMap = objectMap.get(location);
-            if (locMap == null) {
-                locMap = new HashMap<>();
-                objectMap.put(location, locMap);
+            Map<String, JavaFileObject> locMap;
+            synchronized (objectMap) {
+                locMap = objectMap.get(location);
+                if (locMap == null) {
+                    locMap = new ConcurrentHashMap<>();
+                    objectMap.put(location, locMap);
+                }
             }
             locMap.put(key, jfo);
             return jfo;
@@ -320,80 +366,77 @@ public class ExtFileManager
     public void setLocation(Location location, Iterable<? extends File> path)
             throws IOException {
         fileManager.setLocation(location, path);
+        clearCache();
     }
 
     @Override
     public boolean packageExists(String name) {
-        if (packageCache.containsKey(name)) return packageCache.get(name);
+        validateCache();
+        Boolean cached = packageCache.get(name);
+        if (cached != null) return cached;
         boolean exists = false;
-        for (int i = default_locations.size() - 1; !exists && i >= 0; i--)
-            exists = packageExists(default_locations.get(i), name);
+        for (int i = defaultLocations.size() - 1; !exists && i >= 0; i--)
+            exists = packageExists(defaultLocations.get(i), name);
         if (!exists)
             exists = packageExists(extInfo.getOptions().source_path, name);
         packageCache.put(name, exists);
         return exists;
     }
 
-    protected static ZipFile loadZip(File dir) throws IOException {
-        Object o = zipCache.get(dir);
-        if (o != not_found) {
-            ZipFile zip = (ZipFile) o;
-            if (zip != null) {
-                return zip;
-            }
-            else {
-                // the zip is not in the cache.
-                // try to get it.
-                if (!dir.exists()) {
-                    // record that the file does not exist,
-                    zipCache.put(dir, not_found);
-                }
-                else {
-                    // get the zip and put it in the cache.
-                    if (Report.should_report(verbose, 2))
-                        Report.report(2, "Opening zip " + dir);
-                    if (dir.getName().endsWith(".jar")) {
-                        zip = new JarFile(dir);
-                    }
-                    else {
-                        zip = new ZipFile(dir);
-                    }
-                    zipCache.put(dir, zip);
-
-                    // Load the package cache
-                    Enumeration<? extends ZipEntry> i = zip.entries();
-                    while (i.hasMoreElements()) {
-                        ZipEntry ei = i.nextElement();
-                        String n = ei.getName();
-                        int index = n.indexOf('/');
-                        while (index >= 0) {
-                            packageCache.put(n.substring(0, index), true);
-                            index = n.indexOf('/', index + 1);
-                        }
-                    }
-                    return zip;
-                }
-            }
+    /**
+     * Return the index of the zip or jar file {@code f}.  The index is
+     * shared until the file changes on disk.
+     */
+    protected static ArchiveIndex archiveIndex(File f) throws IOException {
+        ArchiveIndex index = archiveIndexes.get(f);
+        if (index != null && index.isCurrent()) {
+            return index;
         }
-        return null;
+
+        if (Report.should_report(verbose, 2))
+            Report.report(2, "Indexing zip " + f);
+        ArchiveIndex newIndex = ArchiveIndex.read(f);
+        archiveIndexes.put(f, newIndex);
+        if (index != null) {
+            // The file changed, so cached look ups may be stale.
+            archiveGeneration.incrementAndGet();
+        }
+        return newIndex;
+    }
+
+    /**
+     * Whether {@code f} is the file system provider of a Java 9+ runtime
+     * image, which Java 9+ runtimes list in place of the jars of their boot
+     * class path.
+     */
+    protected static boolean isRuntimeFileSystem(File f) {
+        return f.getName().equals("jrt-fs.jar");
+    }
+
+    protected static boolean isArchive(File f) {
+        String fileName = f.getName();
+        return fileName.endsWith(".jar") || fileName.endsWith(".zip");
     }
 
     @Override
     public boolean packageExists(Location location, String name) {
+        if (location == extInfo.getOptions().bootclasspath) {
+            ClassFileSnapshot s = snapshot();
+            if (s != null) return s.containsPackage(name.replace('.', '/'));
+        }
         Iterable<? extends File> files = getLocation(location);
         if (files == null) return false;
         for (File f : files) {
-            String fileName = f.getName();
-            if (fileName.endsWith(".jar") || fileName.endsWith(".zip")) {
+            if (isArchive(f)) {
                 String entryName = name.replace('.', '/');
+                ArchiveIndex index;
                 try {
-                    loadZip(f);
+                    index = archiveIndex(f);
                 }
                 catch (IOException e) {
                     throw new InternalCompilerError(e);
                 }
-                Boolean contains = packageCache.get(entryName);
-                if (contains != null && contains) return true;
+                if (index.containsPackage(entryName)) return true;
             }
             else {
                 String filePath = name.replace('.', File.separatorChar);
@@ -413,10 +456,11 @@ public class ExtFileManager
 
     @Override
     public ClassFile loadFile(String name) {
+        validateCache();
         if (nocache.contains(name)) return null;
         ClassFile clazz = null;
-        for (int i = default_locations.size() - 1; i >= 0; i--) {
-            clazz = loadFile(default_locations.get(i), name);
+        for (int i = defaultLocations.size() - 1; i >= 0; i--) {
+            clazz = loadFile(defaultLocations.get(i), name);
             if (clazz != null) break;
         }
         if (clazz == null) nocache.add(name);
@@ -434,10 +478,37 @@ public class ExtFileManager
                                   + getLocation(location));
         }
 
+        boolean boot = location == extInfo.getOptions().bootclasspath;
+        String entryName = name.replace('.', '/') + Kind.CLASS.extension;
+        if (boot) {
+            ClassFileSnapshot s = snapshot();
+            Boolean found = s != null ? s.containsEntry(entryName) : null;
+            if (found == Boolean.TRUE) {
+                try {
+                    return extInfo.createClassFile(s.fileObject(entryName),
+                                                   s.bytes(entryName));
+                }
+                catch (ClassFormatError e) {
+                    if (Report.should_report(report_topics, 4))
+                        Report.report(4, "Class " + name + " format error");
+                    return null;
+                }
+                catch (IOException e) {
+                    if (Report.should_report(report_topics, 4))
+                        Report.report(4, "Error loading class " + name);
+                    return null;
+                }
+            }
+            if (found == Boolean.FALSE) return null;
+        }
+
         try {
             JavaFileObject jfo = null;
             try {
-                jfo = getJavaFileForInput(location, name, Kind.CLASS);
+                Iterable<? extends File> path = indexedPath(location);
+                if (path != null)
+                    jfo = findClassFile(path, name);
+                else jfo = getJavaFileForInput(location, name, Kind.CLASS);
             }
             catch (IOException e) {
                 throw new InternalCompilerError("Error while checking for class file "
@@ -459,7 +530,12 @@ public class ExtFileManager
             }
 
             if (jfo != null) {
-                return extInfo.createClassFile(jfo, getBytes(jfo));
+                ClassFile clazz = extInfo.createClassFile(jfo, getBytes(jfo));
+                if (boot && jfo instanceof ClassPathFileObject
+                        && "jar".equals(jfo.toUri().getScheme())) {
+                    bootEntries.add(entryName);
+                }
+                return clazz;
             }
         }
         catch (ClassFormatError e) {
@@ -473,6 +549,106 @@ public class ExtFileManager
         return null;
     }
 
+    /**
+     * Return the snapshot of the boot class path named by the options, or
+     * null if there is none or it is out of date.
+     */
+    protected synchronized ClassFileSnapshot snapshot() {
+        if (!snapshotRead) {
+            snapshotRead = true;
+            File file = extInfo.getOptions().boot_snapshot_file;
+            if (file != null) {
+                snapshot = ClassFileSnapshot.read(file, bootPath());
+            }
+        }
+        return snapshot;
+    }
+
+    protected List<File> bootPath() {
+        List<File> path = new ArrayList<>();
+        Iterable<? extends File> files =
+                getLocation(extInfo.getOptions().bootclasspath);
+        if (files != null) {
+            for (File f : files) {
+                path.add(f);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Write the class files loaded from the boot class path so far, together
+     * with those in the current snapshot, to the snapshot file named by the
+     * options.  Does nothing if no new class files were loaded.
+     */
+    public void saveSnapshot() {
+        File file = extInfo.getOptions().boot_snapshot_file;
+        if (file == null || bootEntries.isEmpty()) return;
+        Set<String> entries = new HashSet<>(bootEntries);
+        ClassFileSnapshot s = snapshot();
+        if (s != null) entries.addAll(s.entryNames());
+        ClassFileSnapshot.write(file, bootPath(), entries);
+    }
+
+    /**
+     * Return the path of {@code location} if it is not empty and every entry
+     * on it is a directory or an archive that can be searched directly by
+     * {@code findClassFile}, or null otherwise.  When null is returned, the
+     * location is searched by the standard file manager instead.
+     */
+    protected Iterable<? extends File> indexedPath(Location location)
+            throws IOException {
+        if (inMemory && objectMap.get(location) != null) return null;
+        Iterable<? extends File> files = getLocation(location);
+        if (files == null || !files.iterator().hasNext()) {
+            // An empty platform class path stands for the module image of a
+            // Java 9+ runtime.
+            return null;
+        }
+        for (File f : files) {
+            if (isRuntimeFileSystem(f)) {
+                // The class files of a Java 9+ runtime are in its module
+                // image, which only the platform file manager can search.
+                return null;
+            }
+            else if (isArchive(f)) {
+                if (!archiveIndex(f).isMapped()) return null;
+            }
+            else if (f.exists() && !f.isDirectory()) {
+                // E.g., a Java runtime image.
+                return null;
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Find the class file for the class {@code name} in the directories and
+     * archives on {@code path}, which must be indexed.  Return null if no
+     * such class file exists.
+     */
+    protected JavaFileObject findClassFile(Iterable<? extends File> path,
+            String name) throws IOException {
+        String entryName = name.replace('.', '/') + Kind.CLASS.extension;
+        for (File f : path) {
+            if (isArchive(f)) {
+                ArchiveIndex index = archiveIndex(f);
+                if (index.isMapped() && index.containsEntry(entryName))
+                    return new ClassPathFileObject(index, entryName);
+            }
+            else {
+                String relativeName =
+                        entryName.replace('/', File.separatorChar);
+                File file = new File(f, relativeName);
+                if (file.isFile()
+                        && (!caseInsensitive() || file.getCanonicalPath()
+                                                      .endsWith(relativeName)))
+                    return new ClassPathFileObject(file);
+            }
+        }
+        return null;
+    }
+
     @Override
     public FileSource fileSource(String fileName) throws IOException {
         return fileSource(extInfo.getOptions().source_path,
@@ -729,19 +905,24 @@ public class ExtFileManager
      * Convenience method for extracting bytes from a FileObject
      */
     public static byte[] getBytes(FileObject fo) throws IOException {
-        InputStream is = fo.openInputStream();
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        if (fo instanceof ClassPathFileObject) {
+            return ((ClassPathFileObject) fo).bytes();
+        }
 
-        int nRead;
-        byte[] data = new byte[2048];
+        try (InputStream is = fo.openInputStream()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 
-        while ((nRead = is.read(data, 0, data.length)) != -1) {
-            buffer.write(data, 0, nRead);
-        }
+            int nRead;
+            byte[] data = new byte[BUF_SIZE];
 
-        buffer.flush();
+            while ((nRead = is.read(data, 0, data.length)) != -1) {
+                buffer.write(data, 0, nRead);
+            }
 
-        return buffer.toByteArray();
+            buffer.flush();
+
+            return buffer.toByteArray();
+        }
     }
 
     protected static Collection<String> verbose;
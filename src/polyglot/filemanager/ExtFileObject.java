@@ -33,6 +33,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.Writer;
 import java.net.URI;
 import java.util.Scanner;
@@ -40,13 +41,21 @@ import java.util.Scanner;
 import javax.tools.SimpleJavaFileObject;
 
 /**
- * This class represents a source object to be kept in memory.
+ * This class represents a source object to be kept in memory.  Contents
+ * written as characters are kept as characters, so that they can be read back
+ * by {@code getCharContent} without being encoded and decoded.
  */
 public class ExtFileObject extends SimpleJavaFileObject {
 
     final protected ByteArrayOutputStream baos;
     private final static int BUF_SIZE = 4096;
 
+    /**
+     * The contents, if they were last written by {@code openWriter}, or null
+     * if they are in {@code baos}.
+     */
+    protected StringBuilder chars;
+
     public ExtFileObject(URI u, Kind k) {
         super(u, k);
         baos = new ByteArrayOutputStream();
@@ -71,6 +80,7 @@ public class ExtFileObject extends SimpleJavaFileObject {
 
     @Override
     public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        if (chars != null) return chars;
         Reader r;
         try {
             r = openReader(ignoreEncodingErrors);
@@ -90,22 +100,68 @@ public class ExtFileObject extends SimpleJavaFileObject {
 
     @Override
     public InputStream openInputStream() throws IOException {
+        if (chars != null) {
+            // Encode as OutputStreamWriter would have.
+            return new ByteArrayInputStream(chars.toString().getBytes());
+        }
         return new ByteArrayInputStream(baos.toByteArray());
     }
 
     @Override
     public OutputStream openOutputStream() throws IOException {
+        chars = null;
         baos.reset();
         return baos;
     }
 
     @Override
     public Reader openReader(boolean arg0) throws IOException {
+        if (chars != null) return new StringReader(chars.toString());
         return new InputStreamReader(openInputStream());
     }
 
     @Override
     public Writer openWriter() throws IOException {
-        return new OutputStreamWriter(openOutputStream());
+        baos.reset();
+        chars = new StringBuilder(BUF_SIZE);
+        return new CharsWriter(chars);
+    }
+
+    /** A writer that appends to a {@code StringBuilder}. */
+    protected static class CharsWriter extends Writer {
+        protected final StringBuilder sb;
+
+        protected CharsWriter(StringBuilder sb) {
+            this.sb = sb;
+        }
+
+        @Override
+        public void write(int c) {
+            sb.append((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            sb.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            sb.append(str, off, off + len);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            sb.append(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
     }
 }
@@ -47,6 +47,7 @@ import polyglot.main.Options;
 import polyglot.main.Version;
 import polyglot.translate.ext.ToExt;
 import polyglot.translate.ext.ToExt_c;
+import polyglot.types.SignatureCache;
 import polyglot.types.TypeSystem;
 import polyglot.types.reflect.ClassFile;
 import polyglot.types.reflect.ClassFileLoader;
@@ -68,6 +69,7 @@ public abstract class AbstractExtensionInfo implements ExtensionInfo {
     protected Scheduler scheduler;
     protected FileManager extFM;
     protected ClassFileLoader classFileLoader;
+    protected SignatureCache signatureCache;
     protected List<Location> default_locations;
 
     @Override
@@ -130,6 +132,30 @@ public abstract class AbstractExtensionInfo implements ExtensionInfo {
     /** Initialize the type system of this extension. */
     protected abstract void initTypeSystem();
 
+    /**
+     * Discard the state of the last compilation so that this extension can
+     * run another with the same options. The scheduler, statistics, file
+     * manager and signature cache are created afresh; the type system is
+     * kept, and is initialized again by {@code initCompiler}.
+     */
+    public void resetCompilationState() {
+        compiler = null;
+        scheduler = null;
+        stats = null;
+        signatureCache = null;
+        target_factory = null;
+        classFileLoader = null;
+        if (extFM != null) {
+            try {
+                extFM.close();
+            }
+            catch (IOException e) {
+                throw new InternalCompilerError(e);
+            }
+            extFM = null;
+        }
+    }
+
     @Override
     public String[] fileExtensions() {
         String[] sx = getOptions() == null ? null : getOptions().source_ext;
@@ -299,6 +325,17 @@ public abstract class AbstractExtensionInfo implements ExtensionInfo {
         return classFileLoader;
     }
 
+    @Override
+    public synchronized SignatureCache signatureCache() {
+        if (signatureCache == null
+                && getOptions().signature_cache_directory != null) {
+            signatureCache =
+                    new SignatureCache(getOptions().signature_cache_directory,
+                                       version().name());
+        }
+        return signatureCache;
+    }
+
     @Override
     public ToExt getToExt(ExtensionInfo to_ext, Node n) {
         // just return the first ToExt extension we find.
@@ -34,10 +34,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.tools.JavaFileObject;
 
 import polyglot.frontend.Source.Kind;
+import polyglot.filemanager.ExtFileManager;
 import polyglot.frontend.goals.Goal;
 import polyglot.main.Options;
 import polyglot.types.reflect.ClassFileLoader;
@@ -49,6 +52,7 @@ import polyglot.util.InternalCompilerError;
 import polyglot.util.OptimalCodeWriter;
 import polyglot.util.SimpleCodeWriter;
 import polyglot.util.StdErrorQueue;
+import polyglot.util.StreamingCodeWriter;
 
 /**
  * This is the main entry point for the compiler. It contains a work list that
@@ -65,6 +69,14 @@ public class Compiler {
     /** The error queue handles outputting error messages. */
     private ErrorQueue eq;
 
+    /**
+     * Error queue for passes the scheduler runs on worker threads.  Errors
+     * reported on such a thread are buffered here and replayed into
+     * {@code eq} by the scheduler, so the output order does not depend
+     * on thread timing.
+     */
+    private final ThreadLocal<ErrorQueue> threadEq = new ThreadLocal<>();
+
     /**
      * Class file loader.  There should be only one of these so we can cache
      * across type systems.
@@ -77,11 +89,26 @@ public class Compiler {
      */
     private Collection<JavaFileObject> outputFiles = new LinkedHashSet<>();
 
+    /**
+     * Listener notified of the output files of each job as soon as the job
+     * is translated, or null.
+     */
+    private OutputListener outputListener;
+
+    /** The number of output files already passed to {@code outputListener}. */
+    private int outputFilesReported;
+
     /**
      * A Job contains the Output AST generated by the compiler for a given input source file
      */
     private List<Job> jobs = new ArrayList<>();
 
+    /**
+     * The identifiers read by the lexers of this compiler, so that each
+     * name is represented by a single string across all source files.
+     */
+    private ConcurrentMap<String, String> identifiers = new ConcurrentHashMap<>();
+
     /**
      * Initialize the compiler.
      *
@@ -186,12 +213,30 @@ public class Compiler {
      * point for the compiler, called from main().
      */
     public boolean compile(Collection<FileSource> sources) {
-        return runToGoal(sources, new GoalFactory() {
+        DependencyGraph graph = null;
+        if (sourceExtension().getOptions().incremental) {
+            graph = new DependencyGraph(sourceExtension().signatureCache());
+            graph.load();
+            sources = graph.select(sources);
+        }
+
+        boolean okay = runToGoal(sources, new GoalFactory() {
             @Override
             public Goal getGoal(Job job) {
                 return sourceExtension().getCompileGoal(job);
             }
         });
+
+        if (graph != null) {
+            graph.update(jobs);
+            graph.save();
+        }
+
+        if (loader instanceof ExtFileManager) {
+            ((ExtFileManager) loader).saveSnapshot();
+        }
+
+        return okay;
     }
 
     /**
@@ -227,6 +272,10 @@ public class Compiler {
                     Job job = scheduler.addJob(source);
                     jobs.add(job);
 
+                    if (sourceExtension().getOptions().incremental) {
+                        job.recordDependencies();
+                    }
+
                     // Now, add a goal for completing the job.
                     scheduler.addGoal(goalFactory.getGoal(job));
                 }
@@ -302,7 +351,59 @@ public class Compiler {
 
     /** Get the compiler's error queue. */
     public ErrorQueue errorQueue() {
-        return eq;
+        ErrorQueue local = threadEq.get();
+        return local != null ? local : eq;
+    }
+
+    /**
+     * Redirect errors reported on the current thread to {@code local}, or
+     * back to the compiler's error queue if {@code local} is null.
+     */
+    public void setThreadErrorQueue(ErrorQueue local) {
+        if (local == null) {
+            threadEq.remove();
+        }
+        else {
+            threadEq.set(local);
+        }
+    }
+
+    /**
+     * A listener for the output of a compilation, for instance to start
+     * post-compiling the output before the whole compilation is done.
+     */
+    public static interface OutputListener {
+        /**
+         * Called when {@code job} has been translated to the output files
+         * {@code files}.
+         */
+        void outputGenerated(Job job, Collection<JavaFileObject> files);
+    }
+
+    /** Notify {@code l} of the output files of each job as it is translated. */
+    public void setOutputListener(OutputListener l) {
+        outputListener = l;
+    }
+
+    /**
+     * Called by the output pass once {@code job} is translated.  The output
+     * files added since the previous call are those of {@code job}.
+     */
+    public void jobTranslated(Job job) {
+        if (outputListener == null) return;
+
+        // The output files are cleared when an extension hands its jobs on
+        // to its output extension.
+        if (outputFilesReported > outputFiles.size()) outputFilesReported = 0;
+
+        List<JavaFileObject> files = new ArrayList<>();
+        int i = 0;
+        for (JavaFileObject f : outputFiles) {
+            if (i++ >= outputFilesReported) files.add(f);
+        }
+        outputFilesReported = outputFiles.size();
+
+        outputListener.outputGenerated(job, files);
     }
 
     /** Return the list of Jobs generated during the last compiler run. **/
@@ -310,6 +411,11 @@ public class Compiler {
         return jobs;
     }
 
+    /** Return the identifier table shared by the lexers of this compiler. */
+    public ConcurrentMap<String, String> identifiers() {
+        return identifiers;
+    }
+
     static {
         // FIXME: if we get an io error (due to too many files open, for example)
         // it will throw an exception. but, we won't be able to do anything with
@@ -336,6 +442,8 @@ public class Compiler {
     public static CodeWriter createCodeWriter(OutputStream w, int width) {
         if (Options.global.use_simple_code_writer)
             return new SimpleCodeWriter(w, width);
+        else if (Options.global.use_streaming_code_writer)
+            return new StreamingCodeWriter(w, width);
         else return new OptimalCodeWriter(w, width);
     }
 
@@ -346,6 +454,8 @@ public class Compiler {
     public static CodeWriter createCodeWriter(Writer w, int width) {
         if (Options.global.use_simple_code_writer)
             return new SimpleCodeWriter(w, width);
+        else if (Options.global.use_streaming_code_writer)
+            return new StreamingCodeWriter(w, width);
         else return new OptimalCodeWriter(w, width);
     }
 }
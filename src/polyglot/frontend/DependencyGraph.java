@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.frontend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import polyglot.main.Report;
+import polyglot.types.ArrayType;
+import polyglot.types.ClassType;
+import polyglot.types.SignatureCache;
+import polyglot.types.Type;
+
+/**
+ * A {@code DependencyGraph} records, for each source file compiled
+ * incrementally, a digest of its contents, the top-level classes it declares
+ * and the top-level classes it refers to.  The graph is kept next to the
+ * signature cache between compilations.
+ * <p>
+ * Given the sources named on the command line, {@link #select} returns the
+ * ones that must be recompiled: those that changed since they were last
+ * compiled, and those that refer, directly or transitively, to a class
+ * declared by a changed or deleted source.  The signatures of the remaining
+ * sources are loaded from the signature cache.  A recorded source that still
+ * exists but is not on the command line keeps its entry, and its classes are
+ * not invalidated; the entries of deleted sources are dropped.
+ * <p>
+ * Only references to classes are recorded, not the way names were resolved.
+ * A source added to the command line therefore does not invalidate the
+ * sources whose on-demand imports it changes, for instance one that declares
+ * a class shadowing a class of the same name from another imported package.
+ * Such sources must be touched, or the graph deleted, to be recompiled.
+ */
+public class DependencyGraph {
+    private static final int MAGIC = 0x4a4c4447; // "JLDG"
+
+    /**
+     * The classes declared and referenced by one job, recorded while the
+     * job is type checked.
+     */
+    public static class Dependencies {
+        protected final Set<String> declared;
+        protected final Set<String> referenced;
+
+        public Dependencies() {
+            this.declared =
+                    Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            this.referenced =
+                    Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        }
+
+        /** Record that the job declares the class {@code ct}. */
+        public void declare(ClassType ct) {
+            if (ct.isTopLevel()) {
+                declared.add(ct.fullName());
+            }
+        }
+
+        /** The top-level classes the job refers to. */
+        public Set<String> referenced() {
+            return referenced;
+        }
+
+        /** Record that the job refers to the type {@code t}. */
+        public void reference(Type t) {
+            if (t instanceof ArrayType) {
+                t = ((ArrayType) t).ultimateBase();
+            }
+            if (!(t instanceof ClassType)) {
+                return;
+            }
+
+            ClassType ct = (ClassType) t;
+            while (ct.isNested() && ct.outer() != null) {
+                ct = ct.outer();
+            }
+            if (ct.isTopLevel()) {
+                referenced.add(ct.fullName());
+            }
+        }
+    }
+
+    protected static class Entry {
+        protected final String digest;
+        protected final Set<String> declared;
+        protected final Set<String> referenced;
+
+        protected Entry(String digest, Set<String> declared,
+                Set<String> referenced) {
+            this.digest = digest;
+            this.declared = declared;
+            this.referenced = referenced;
+        }
+    }
+
+    protected final File file;
+    protected final SignatureCache signatureCache;
+
+    /**
+     * Entries keyed by the canonical path of their source, as computed by
+     * {@link SignatureCache#canonicalPath}.
+     */
+    protected final Map<String, Entry> entries;
+
+    public DependencyGraph(SignatureCache signatureCache) {
+        this.signatureCache = signatureCache;
+        this.file = new File(signatureCache.directory(), "dependencies");
+        this.entries = new HashMap<>();
+    }
+
+    /**
+     * Load the graph saved by the last compilation, if any.
+     */
+    public void load() {
+        entries.clear();
+        if (!file.isFile()) {
+            return;
+        }
+
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                String path = in.readUTF();
+                String digest = in.readUTF();
+                Set<String> declared = readNames(in);
+                Set<String> referenced = readNames(in);
+                entries.put(path, new Entry(digest, declared, referenced));
+            }
+        }
+        catch (IOException e) {
+            if (Report.should_report(TOPIC, 1))
+                Report.report(1, "Unable to read " + file + ": " + e.getMessage());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Save the graph for the next compilation.  Failures are reported but
+     * otherwise ignored; the next compilation then recompiles everything.
+     */
+    public void save() {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            File tmp =
+                    File.createTempFile("dependencies", ".tmp", file.getParentFile());
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(e.getValue().digest);
+                    writeNames(out, e.getValue().declared);
+                    writeNames(out, e.getValue().referenced);
+                }
+            }
+            Files.move(tmp.toPath(),
+                       file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e) {
+            if (Report.should_report(TOPIC, 1))
+                Report.report(1, "Unable to write " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Return the sources among {@code sources} that must be recompiled.
+     */
+    public <S extends Source> List<S> select(Collection<S> sources) {
+        Map<String, S> byPath = new HashMap<>();
+        for (S s : sources) {
+            byPath.put(SignatureCache.canonicalPath(s.path()), s);
+        }
+
+        // Classes whose signatures may have changed.
+        Set<String> invalid = new HashSet<>();
+        LinkedList<String> worklist = new LinkedList<>();
+        Set<String> selected = new HashSet<>();
+
+        for (Iterator<Map.Entry<String, Entry>> i =
+                entries.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<String, Entry> e = i.next();
+            if (!byPath.containsKey(e.getKey())
+                    && !new File(e.getKey()).isFile()) {
+                invalid.addAll(e.getValue().declared);
+                i.remove();
+            }
+        }
+
+        for (String path : byPath.keySet()) {
+            Entry e = entries.get(path);
+            if (e == null || !e.digest.equals(digest(path))) {
+                selected.add(path);
+                if (e != null) {
+                    invalid.addAll(e.declared);
+                }
+            }
+        }
+        worklist.addAll(invalid);
+
+        // Map each class to the unselected sources that refer to it.
+        Map<String, List<String>> referrers = new HashMap<>();
+        for (String path : byPath.keySet()) {
+            if (selected.contains(path)) continue;
+            for (String name : entries.get(path).referenced) {
+                List<String> l = referrers.get(name);
+                if (l == null) {
+                    l = new ArrayList<>(2);
+                    referrers.put(name, l);
+                }
+                l.add(path);
+            }
+        }
+
+        while (!worklist.isEmpty()) {
+            List<String> l = referrers.get(worklist.removeFirst());
+            if (l == null) continue;
+            for (String path : l) {
+                if (selected.add(path)) {
+                    for (String name : entries.get(path).declared) {
+                        if (invalid.add(name)) {
+                            worklist.add(name);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<S> result = new ArrayList<>(selected.size());
+        for (S s : sources) {
+            if (selected.contains(SignatureCache.canonicalPath(s.path()))) {
+                result.add(s);
+            }
+        }
+
+        if (Report.should_report(TOPIC, 1))
+            Report.report(1, "Recompiling " + result.size() + " of "
+                    + sources.size() + " sources");
+
+        return result;
+    }
+
+    /**
+     * Record the dependencies of the jobs just compiled.  Jobs that reported
+     * errors are dropped from the graph, so they are recompiled next time.
+     */
+    public void update(Collection<Job> jobs) {
+        for (Job job : jobs) {
+            String path = SignatureCache.canonicalPath(job.source().path());
+            Dependencies deps = job.dependencies();
+
+            if (deps == null || job.reportedErrors()) {
+                entries.remove(path);
+                continue;
+            }
+
+            String digest = digest(path);
+            if (digest == null) {
+                entries.remove(path);
+                continue;
+            }
+
+            Set<String> referenced = new HashSet<>(deps.referenced);
+            referenced.removeAll(deps.declared);
+            entries.put(path,
+                        new Entry(digest,
+                                  new HashSet<>(deps.declared),
+                                  referenced));
+        }
+    }
+
+    /**
+     * The digest of the source at {@code path}, or null if it cannot be
+     * read.
+     */
+    protected String digest(String path) {
+        try {
+            return signatureCache.digest(path);
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    protected static Set<String> readNames(DataInputStream in)
+            throws IOException {
+        int n = in.readInt();
+        Set<String> names = new HashSet<>(n * 2);
+        for (; n > 0; n--) {
+            names.add(in.readUTF());
+        }
+        return names;
+    }
+
+    protected static void writeNames(DataOutputStream out, Set<String> names)
+            throws IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    private static final String TOPIC = "incremental";
+}
@@ -41,6 +41,7 @@ import polyglot.frontend.Source.Kind;
 import polyglot.frontend.goals.Goal;
 import polyglot.main.Options;
 import polyglot.translate.ext.ToExt;
+import polyglot.types.SignatureCache;
 import polyglot.types.TypeSystem;
 import polyglot.types.reflect.ClassFile;
 import polyglot.types.reflect.ClassFileLoader;
@@ -166,6 +167,12 @@ public interface ExtensionInfo {
     /** Produce a class factory for this language extension. */
     ClassFileLoader classFileLoader();
 
+    /**
+     * The cache of compiled class signatures, or null if none was requested
+     * with {@code -sigcache}.
+     */
+    SignatureCache signatureCache();
+
     /**
      * Produce an extension info object for the output language this extension
      * translates to.
@@ -69,7 +69,8 @@ public class JLExtensionInfo extends ParserlessJLExtensionInfo {
     public Parser parser(Reader reader, Source source, ErrorQueue eq) {
         reader = new EscapedUnicodeReader(reader);
 
-        polyglot.lex.Lexer lexer = new Lexer_c(reader, source, eq);
+        polyglot.lex.Lexer lexer = new Lexer_c(reader, source, eq,
+                                               compiler().identifiers());
         polyglot.parse.BaseParser parser = new Grm(lexer, ts, nf, eq);
 
         return new CupParser(parser, source, eq);
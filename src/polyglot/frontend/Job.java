@@ -62,6 +62,12 @@ public class Job {
     /** The {@code Source} that this {@code Job} represents. */
     protected Source source;
 
+    /**
+     * The classes this job declares and refers to, if they are being
+     * recorded for an incremental compilation; null otherwise.
+     */
+    protected DependencyGraph.Dependencies dependencies;
+
     /**
      * Global constant representing a job that has been completed.
      */
@@ -121,6 +127,21 @@ public class Job {
         this.ast = ast;
     }
 
+    /**
+     * The dependencies recorded for this job, or null if they are not being
+     * recorded.
+     */
+    public DependencyGraph.Dependencies dependencies() {
+        return dependencies;
+    }
+
+    /** Start recording dependencies for this job. */
+    public void recordDependencies() {
+        if (dependencies == null) {
+            dependencies = new DependencyGraph.Dependencies();
+        }
+    }
+
     /** True if some pass reported an error. */
     public boolean reportedErrors() {
         return reportedErrors;
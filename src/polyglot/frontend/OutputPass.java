@@ -53,6 +53,7 @@ public class OutputPass extends AbstractPass {
         }
 
         if (translator.translate(ast)) {
+            goal.job().compiler().jobTranslated(goal.job());
             return true;
         }
 
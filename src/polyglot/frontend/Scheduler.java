@@ -36,6 +36,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import polyglot.ast.Lang;
 import polyglot.ast.Node;
@@ -50,6 +56,7 @@ import polyglot.types.ParsedClassType;
 import polyglot.util.ErrorInfo;
 import polyglot.util.ErrorQueue;
 import polyglot.util.InternalCompilerError;
+import polyglot.util.SilentErrorQueue;
 import polyglot.util.StringUtil;
 
 /**
@@ -327,6 +334,10 @@ public abstract class Scheduler {
 
         boolean okay = true;
 
+        if (parallelism() > 1) {
+            okay = runJobLocalGoals();
+        }
+
         while (okay && !reached(theEnd)) {
             okay = attemptGoal(theEnd);
         }
@@ -339,6 +350,311 @@ public abstract class Scheduler {
         return okay;
     }
 
+    /**
+     * The number of worker threads used to run job-local goals.  If at most
+     * 1, all goals are run on the calling thread.
+     */
+    protected int parallelism() {
+        return extInfo.getOptions().parallelism;
+    }
+
+    /**
+     * Return the goals of {@code job} whose passes access only the job
+     * itself, so that they may run concurrently with the same goals of other
+     * jobs.  Such a pass must not attempt other goals, and may use the type
+     * system only to load well-known classes, which is serialized by
+     * {@code TypeSystem_c.load}.
+     * <p>
+     * Only parsing qualifies.  The resolver caches may be read and updated
+     * concurrently, but the later passes also touch state that may not:
+     * <ul>
+     * <li>{@code TypesInitialized} checks the system resolver for a class of
+     * the same name before adding each class it builds.  Two jobs declaring
+     * the same class could both pass the check, and which one reports the
+     * duplicate would depend on timing.
+     * <li>Disambiguation and type checking attempt the goals of other jobs
+     * by throwing {@code MissingDependencyException}, intern goals in the
+     * unsynchronized goal table, and initialize class types lazily, which
+     * neither {@code ParsedClassType_c} nor the class file initializers
+     * synchronize.
+     * <li>The checks after type checking only become ready once the calling
+     * thread has type checked the job, and they too query class types that
+     * may still be initialized lazily.
+     * </ul>
+     */
+    protected List<Goal> jobLocalGoals(Job job) {
+        return Collections.singletonList(Parsed(job));
+    }
+
+    /**
+     * Run the job-local goals of all current jobs on a pool of
+     * {@code parallelism()} threads, wave by wave, until no more such goals
+     * are ready.  The outcome of each pass, including any errors it reported
+     * and any missing dependency, is applied on the calling thread in job
+     * order, up to the first pass that fails, so compiler output is the same
+     * as for a sequential run.
+     *
+     * @return false if any pass failed.
+     */
+    protected boolean runJobLocalGoals() {
+        ExecutorService pool = createWorkerPool();
+        try {
+            boolean okay = true;
+            List<Goal> ready = readyJobLocalGoals();
+
+            // A single goal is cheaper to run by the ordinary worklist.
+            while (okay && ready.size() > 1) {
+                if (Report.should_report(Report.frontend, 1))
+                    Report.report(1, "Running " + ready.size()
+                            + " job-local goals on " + parallelism()
+                            + " threads");
+
+                List<JobLocalTask> tasks = new ArrayList<>(ready.size());
+                for (Goal goal : ready) {
+                    Pass pass = goal.createPass(extInfo);
+
+                    if (extInfo.getOptions().disable_passes.contains(pass.name())) {
+                        if (Report.should_report(Report.frontend, 1))
+                            Report.report(1, "Skipping pass " + pass);
+
+                        goal.setState(Goal.REACHED);
+                        continue;
+                    }
+
+                    tasks.add(new JobLocalTask(pass));
+                }
+
+                // A sequential run stops at the first pass that fails, so
+                // the outcomes of the passes of later jobs are dropped.
+                List<Future<JobLocalTask>> results = pool.invokeAll(tasks);
+                for (Future<JobLocalTask> f : results) {
+                    JobLocalTask task = f.get();
+                    if (okay)
+                        okay = finishJobLocalTask(task);
+                    else task.pass.goal().setState(task.state);
+                }
+
+                ready = readyJobLocalGoals();
+            }
+
+            return okay;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalCompilerError(e);
+        }
+        catch (ExecutionException e) {
+            // JobLocalTask.call catches everything.
+            throw new InternalCompilerError(e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Create the thread pool used by {@code runJobLocalGoals}. */
+    protected ExecutorService createWorkerPool() {
+        return Executors.newFixedThreadPool(parallelism(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "polyglot-worker");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Return the job-local goals that are not yet reached but whose
+     * prerequisites have all been reached, in job order.
+     */
+    protected List<Goal> readyJobLocalGoals() {
+        List<Goal> ready = new ArrayList<>();
+
+        for (Job job : jobs()) {
+            if (!job.status()) continue;
+
+            for (Goal goal : jobLocalGoals(job)) {
+                if (reached(goal) || !goal.isReachable()) continue;
+
+                boolean runPass = true;
+                for (Goal subgoal : goal.prerequisiteGoals(this)) {
+                    if (!reached(subgoal)) {
+                        runPass = false;
+                        break;
+                    }
+                }
+
+                if (runPass) ready.add(goal);
+            }
+        }
+
+        return ready;
+    }
+
+    /**
+     * A pass run on a worker thread.  Errors reported by the pass are
+     * buffered in {@code eq} rather than written to the compiler's error
+     * queue.
+     */
+    protected class JobLocalTask implements Callable<JobLocalTask> {
+        protected final Pass pass;
+        protected final SilentErrorQueue eq;
+        /** The state of the goal before the pass was started. */
+        protected final int state;
+        protected boolean result;
+        protected MissingDependencyException missing;
+        protected SchedulerException aborted;
+        protected Throwable exception;
+
+        protected JobLocalTask(Pass pass) {
+            this.pass = pass;
+            this.eq =
+                    new SilentErrorQueue(extInfo.getOptions().error_count,
+                                         extInfo.compilerName());
+            this.state = pass.goal().state();
+            pass.goal().setState(Goal.RUNNING);
+        }
+
+        @Override
+        public JobLocalTask call() {
+            Job job = pass.goal().job();
+            Compiler compiler = extInfo.compiler();
+
+            compiler.setThreadErrorQueue(eq);
+            job.setRunningPass(pass);
+            pass.resetTimers();
+            pass.toggleTimers(false);
+
+            try {
+                result = pass.run();
+            }
+            catch (MissingDependencyException e) {
+                missing = e;
+            }
+            catch (SchedulerException e) {
+                aborted = e;
+            }
+            catch (Throwable e) {
+                exception = e;
+            }
+            finally {
+                pass.toggleTimers(false);
+                job.setRunningPass(null);
+                compiler.setThreadErrorQueue(null);
+            }
+
+            return this;
+        }
+    }
+
+    /**
+     * Apply the outcome of {@code task} on the calling thread: replay its
+     * errors, record the goal state and any missing dependency, and
+     * accumulate statistics, as {@code runPass} does for a pass run
+     * directly.
+     *
+     * @return false if the pass failed.
+     */
+    protected boolean finishJobLocalTask(JobLocalTask task) {
+        Pass pass = task.pass;
+        Goal goal = pass.goal();
+        Job job = goal.job();
+        Stats stats = extInfo.getStats();
+        String key = goal.toString();
+
+        Integer countObj = runCount.get(goal);
+        runCount.put(goal, countObj != null ? countObj.intValue() + 1 : 1);
+
+        ErrorQueue eq = extInfo.compiler().errorQueue();
+        for (ErrorInfo e : task.eq) {
+            eq.enqueue(e);
+        }
+
+        if (task.exception instanceof RuntimeException) {
+            throw (RuntimeException) task.exception;
+        }
+        if (task.exception instanceof Error) {
+            throw (Error) task.exception;
+        }
+
+        stats.accumPassTimes(key + " attempts", 1, 1);
+        stats.accumPassTimes("total goal attempts", 1, 1);
+
+        boolean result = task.result;
+
+        if (task.missing != null) {
+            if (Report.should_report(Report.frontend, 1))
+                Report.report(1, "Did not complete pass " + pass + " for "
+                        + goal + " (missing " + task.missing.goal() + ")");
+
+            stats.accumPassTimes(key + " aborts", 1, 1);
+            stats.accumPassTimes("total goal aborts", 1, 1);
+
+            addDependencyAndEnqueue(goal,
+                                    task.missing.goal(),
+                                    task.missing.prerequisite());
+            goal.setState(Goal.ATTEMPTED);
+            result = true;
+        }
+        else if (task.aborted != null) {
+            if (Report.should_report(Report.frontend, 1))
+                Report.report(1, "Did not complete pass " + pass + " for "
+                        + goal);
+
+            stats.accumPassTimes(key + " aborts", 1, 1);
+            stats.accumPassTimes("goal aborts", 1, 1);
+
+            goal.setState(Goal.ATTEMPTED);
+            result = true;
+        }
+        else if (!result) {
+            stats.accumPassTimes(key + " failures", 1, 1);
+            stats.accumPassTimes("total goal failures", 1, 1);
+
+            goal.setState(Goal.UNREACHABLE);
+            if (Report.should_report(Report.frontend, 1))
+                Report.report(1, "Failed pass " + pass + " for " + goal);
+        }
+        else if (goal.state() == Goal.RUNNING) {
+            stats.accumPassTimes(key + " reached", 1, 1);
+            stats.accumPassTimes("total goal reached", 1, 1);
+
+            goal.setState(Goal.REACHED);
+            if (Report.should_report(Report.frontend, 1))
+                Report.report(1, "Completed pass " + pass + " for " + goal);
+        }
+        else {
+            stats.accumPassTimes(key + " unreached", 1, 1);
+            stats.accumPassTimes("total goal unreached", 1, 1);
+
+            goal.setState(Goal.ATTEMPTED);
+            if (Report.should_report(Report.frontend, 1))
+                Report.report(1, "Completed (unreached) pass " + pass
+                        + " for " + goal);
+        }
+
+        stats.accumPassTimes(key, pass.inclusiveTime(), pass.inclusiveTime());
+        stats.accumPassTimes(pass.name(),
+                             pass.inclusiveTime(),
+                             pass.exclusiveTime());
+
+        printAST(job, pass);
+
+        if (!result) {
+            failed = true;
+        }
+
+        if (Report.should_report(Report.frontend, 1)) {
+            Report.report(1, "Finished " + pass + " status="
+                    + statusString(result));
+        }
+
+        job.updateStatus(result);
+
+        return result;
+    }
+
     /**
      * Load a source file and create a job for it.  Optionally add a goal
      * to compile the job to Java.
@@ -724,29 +1040,7 @@ public abstract class Scheduler {
             }
 
             if (job != null) {
-                Options options = extInfo.getOptions();
-                String passName = pass.name();
-                Lang lang = pass.lang();
-
-                // pretty-print this pass if we need to.
-                if (options.print_ast.contains(passName)) {
-                    System.err.println("--------------------------------"
-                            + "--------------------------------");
-                    System.err.println("Pretty-printing AST for " + job
-                            + " after " + passName);
-
-                    lang.prettyPrint(job.ast(), lang, System.err);
-                }
-
-                // dump this pass if we need to.
-                if (options.dump_ast.contains(passName)) {
-                    System.err.println("--------------------------------"
-                            + "--------------------------------");
-                    System.err.println("Dumping AST for " + job + " after "
-                            + passName);
-
-                    lang.dump(job.ast(), lang, System.err);
-                }
+                printAST(job, pass);
             }
 
             // This seems to work around a VM bug on linux with JDK
@@ -787,6 +1081,36 @@ public abstract class Scheduler {
         return result;
     }
 
+    /**
+     * Pretty-print or dump the AST of {@code job} after {@code pass} if
+     * requested on the command line.
+     */
+    protected void printAST(Job job, Pass pass) {
+        Options options = extInfo.getOptions();
+        String passName = pass.name();
+        Lang lang = pass.lang();
+
+        // pretty-print this pass if we need to.
+        if (options.print_ast.contains(passName)) {
+            System.err.println("--------------------------------"
+                    + "--------------------------------");
+            System.err.println("Pretty-printing AST for " + job
+                    + " after " + passName);
+
+            lang.prettyPrint(job.ast(), lang, System.err);
+        }
+
+        // dump this pass if we need to.
+        if (options.dump_ast.contains(passName)) {
+            System.err.println("--------------------------------"
+                    + "--------------------------------");
+            System.err.println("Dumping AST for " + job + " after "
+                    + passName);
+
+            lang.dump(job.ast(), lang, System.err);
+        }
+    }
+
     protected static String statusString(boolean okay) {
         if (okay) {
             return "done";
@@ -890,6 +1214,12 @@ public abstract class Scheduler {
         // No appropriate job yet exists, we will create one.
         job = createSourceJob(source, ast);
 
+        // The pipelined post-compiler orders the output of jobs by their
+        // dependencies.
+        if (extInfo.getOptions().post_compiler_batch > 0) {
+            job.recordDependencies();
+        }
+
         // record the job in the map and the worklist.
         jobs.put(source, job);
 
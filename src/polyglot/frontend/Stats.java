@@ -56,6 +56,12 @@ public class Stats {
      */
     protected List<Object> keys = new ArrayList<>(20);
 
+    /** Map from Objects to totals that are not pass times. */
+    protected Map<Object, Long> counters = new HashMap<>();
+
+    /** List of Objects used as keys to counters, in order. */
+    protected List<Object> counterKeys = new ArrayList<>();
+
     public Stats(ExtensionInfo ext) {
         this.ext = ext;
     }
@@ -90,6 +96,27 @@ public class Stats {
         }
     }
 
+    /** Return the total accumulated for a counter. */
+    public long counter(Object key) {
+        Long n = counters.get(key);
+        return n == null ? 0 : n.longValue();
+    }
+
+    /**
+     * Add {@code n} to a counter, a total such as a count of events or a
+     * time in a unit other than the milliseconds of pass times.
+     */
+    public void accumCounter(Object key, long n) {
+        if (Report.should_report(Report.time, 1)) {
+            Long old = counters.get(key);
+            if (old == null) {
+                counterKeys.add(key);
+                old = 0L;
+            }
+            counters.put(key, old + n);
+        }
+    }
+
     /** Report the stats. */
     public void report() {
         if (Report.should_report(Report.time, 1)) {
@@ -105,6 +132,14 @@ public class Stats {
                               t.inclusive + " " + t.exclusive + " "
                                       + key.toString());
             }
+
+            if (!counterKeys.isEmpty()) {
+                Report.report(1, "\nTotal Key");
+                Report.report(1, "----- ---");
+                for (Object key : counterKeys) {
+                    Report.report(1, counters.get(key) + " " + key.toString());
+                }
+            }
         }
     }
 }
@@ -62,13 +62,15 @@ public class Serialized extends SourceFileGoal {
             Compiler compiler = extInfo.compiler();
             TypeSystem ts = extInfo.typeSystem();
             NodeFactory nf = extInfo.nodeFactory();
-            return new VisitorPass(this,
-                                   createSerializer(ts,
-                                                    nf,
-                                                    job().source()
-                                                         .getLastModified(),
-                                                    compiler.errorQueue(),
-                                                    extInfo.version()));
+            ClassSerializer serializer =
+                    createSerializer(ts,
+                                     nf,
+                                     job().source().getLastModified(),
+                                     compiler.errorQueue(),
+                                     extInfo.version());
+            serializer.setSignatureCache(extInfo.signatureCache(),
+                                         job().source());
+            return new VisitorPass(this, serializer);
         }
         else {
             return new EmptyPass(this);
@@ -37,6 +37,12 @@ public class Identifier extends Token {
         this.identifier = identifier;
     }
 
+    public Identifier(LineTable lines, int offset, int endOffset,
+            String identifier, int sym) {
+        super(lines, offset, endOffset, sym);
+        this.identifier = identifier;
+    }
+
     public String getIdentifier() {
         return identifier;
     }
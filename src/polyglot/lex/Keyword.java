@@ -37,6 +37,12 @@ public class Keyword extends Token {
         keyword = s;
     }
 
+    public Keyword(LineTable lines, int offset, int endOffset, String s,
+            int sym) {
+        super(lines, offset, endOffset, sym);
+        keyword = s;
+    }
+
     @Override
     public String toString() {
         return keyword;
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.lex;
+
+import java.util.Arrays;
+
+import polyglot.util.Position;
+
+/**
+ * The lines of a source file, recorded by the lexer as it reads tokens, so
+ * that a token need only keep its offsets and can compute its position when
+ * the position is asked for.  A line is recorded with the offset at which it
+ * starts when a token starts on it.
+ */
+public class LineTable {
+    protected final String path;
+    protected final String file;
+
+    /** The recorded line numbers, in increasing order. */
+    protected int[] lines = new int[64];
+
+    /** The offset at which each recorded line starts. */
+    protected int[] starts = new int[64];
+
+    protected int size;
+
+    public LineTable(String path, String file) {
+        this.path = path;
+        this.file = file;
+    }
+
+    /**
+     * Record that line {@code line} starts at offset {@code start}.  Lines
+     * must be added in increasing order.
+     */
+    public void addLine(int line, int start) {
+        if (size > 0 && lines[size - 1] >= line) return;
+        if (size == lines.length) {
+            lines = Arrays.copyOf(lines, 2 * size);
+            starts = Arrays.copyOf(starts, 2 * size);
+        }
+        lines[size] = line;
+        starts[size] = start;
+        size++;
+    }
+
+    /**
+     * Return the position of the text from {@code offset} to
+     * {@code endOffset}, which must be on a recorded line.
+     */
+    public Position position(int offset, int endOffset) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= offset)
+                lo = mid;
+            else hi = mid - 1;
+        }
+        int line = lines[lo];
+        int column = offset - starts[lo];
+        return new Position(path,
+                            file,
+                            line,
+                            column,
+                            line,
+                            column + endOffset - offset,
+                            offset,
+                            endOffset);
+    }
+}
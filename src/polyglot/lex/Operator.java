@@ -37,6 +37,12 @@ public class Operator extends Token {
         this.which = which;
     }
 
+    public Operator(LineTable lines, int offset, int endOffset, String which,
+            int sym) {
+        super(lines, offset, endOffset, sym);
+        this.which = which;
+    }
+
     @Override
     public String toString() {
         return "operator " + which;
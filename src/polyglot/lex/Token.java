@@ -33,12 +33,34 @@ public abstract class Token {
     protected Position position;
     protected int symbol;
 
+    /**
+     * The lines of the source, if the position is computed from
+     * {@code span} when first asked for, or null.
+     */
+    protected LineTable lines;
+
+    /** The start offset of the token in the high bits, the end offset in the low bits. */
+    protected long span;
+
     public Token(Position position, int symbol) {
         this.position = position;
         this.symbol = symbol;
     }
 
+    /**
+     * Create a token from {@code offset} to {@code endOffset} of a source
+     * whose lines are {@code lines}, and which starts on a recorded line.
+     */
+    public Token(LineTable lines, int offset, int endOffset, int symbol) {
+        this.lines = lines;
+        this.span = (long) offset << 32 | endOffset & 0xffffffffL;
+        this.symbol = symbol;
+    }
+
     public Position getPosition() {
+        if (position == null && lines != null) {
+            position = lines.position((int) (span >>> 32), (int) span);
+        }
         return position;
     }
 
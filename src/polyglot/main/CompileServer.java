@@ -0,0 +1,528 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.main;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import polyglot.frontend.AbstractExtensionInfo;
+import polyglot.frontend.Compiler;
+import polyglot.frontend.ExtensionInfo;
+import polyglot.types.ClassType;
+import polyglot.types.LazyInitializer;
+import polyglot.types.Named;
+import polyglot.types.Package;
+import polyglot.types.ParsedTypeObject;
+import polyglot.types.TypeSystem;
+import polyglot.types.reflect.ClassFileLazyClassInitializer;
+import polyglot.util.ErrorQueue;
+import polyglot.util.LRUMap;
+import polyglot.util.QuotedStringTokenizer;
+
+/**
+ * A compile server runs compilations in a virtual machine that outlives
+ * them, so that the classes of the compiler, the indexes of the archives on
+ * the class path, and the types loaded from the boot class path are not
+ * loaded again for each compilation.
+ *
+ * A request is a line of command line arguments, as they would be given to
+ * {@code Main}. The server answers with the output of the compilation, each
+ * line prefixed by {@code "| "}, followed by the line {@code "exit <n>"},
+ * where {@code n} is the exit code the compiler would have had. Requests are
+ * read from standard input, or, with {@code -port <n>}, from connections to
+ * that port on the loopback interface. Relative file names are resolved
+ * against the working directory of the server.
+ *
+ * Since any user of the machine may connect to the loopback interface, the
+ * server writes a random token to a file only its owner can read, named by
+ * {@code -token <file>}, or else {@code .jlc-server-<n>} in the user's home
+ * directory. The first line of each connection must be that token; the
+ * server closes connections that do not start with it without reading
+ * their requests. Since connections are served one at a time, a connection
+ * on which nothing is read for {@link #READ_TIMEOUT} milliseconds is closed
+ * too, so that an idle client cannot hold up the others.
+ *
+ * Compilations run one at a time, since the reporting topics and the
+ * global options are static. Each has its own compiler, error queue,
+ * scheduler and jobs, and a newly initialized type system, whose system
+ * resolver starts out empty but for the types that earlier compilations with
+ * the same options loaded from archives on the boot class path.
+ */
+public class CompileServer {
+    /** The number of sets of options whose extensions are kept. */
+    protected static final int SESSIONS = 8;
+
+    /**
+     * The milliseconds a connection may wait for its token or its next
+     * request before it is closed.
+     */
+    protected static final int READ_TIMEOUT = 30000;
+
+    /** The sessions, keyed by the extension and options they were made for. */
+    protected final Map<String, Session> sessions = new LRUMap<>(SESSIONS);
+
+    public static void main(String[] args) {
+        int port = -1;
+        File tokenFile = null;
+        try {
+            if ((args.length == 2 || args.length == 4)
+                    && args[0].equals("-port")) {
+                port = Integer.parseInt(args[1]);
+                if (args.length == 4) {
+                    if (!args[2].equals("-token"))
+                        throw new NumberFormatException();
+                    tokenFile = new File(args[3]);
+                }
+                else {
+                    tokenFile = new File(System.getProperty("user.home"),
+                                         ".jlc-server-" + port);
+                }
+            }
+            else if (args.length != 0) {
+                throw new NumberFormatException();
+            }
+        }
+        catch (NumberFormatException e) {
+            System.err.println("usage: " + CompileServer.class.getName()
+                    + " [-port <n> [-token <file>]]");
+            System.exit(1);
+        }
+
+        CompileServer server = new CompileServer();
+        try {
+            if (port < 0) {
+                server.serve(new BufferedReader(new InputStreamReader(System.in)),
+                             System.out);
+            }
+            else {
+                server.listen(port, tokenFile);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("compile server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Accept connections on {@code port} of the loopback interface, and
+     * serve the requests on each in turn. A new token is written to
+     * {@code tokenFile}, and connections that do not start with it are
+     * closed.
+     */
+    public void listen(int port, File tokenFile) throws IOException {
+        byte[] token = writeToken(tokenFile);
+        try (ServerSocket ss =
+                new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            while (true) {
+                try (Socket s = ss.accept()) {
+                    s.setSoTimeout(READ_TIMEOUT);
+                    BufferedReader in =
+                            new BufferedReader(new InputStreamReader(s.getInputStream(),
+                                                                     StandardCharsets.US_ASCII));
+                    String line = in.readLine();
+                    if (line == null
+                            || !MessageDigest.isEqual(token,
+                                                      line.getBytes(StandardCharsets.US_ASCII))) {
+                        continue;
+                    }
+                    PrintStream out =
+                            new PrintStream(new BufferedOutputStream(s.getOutputStream()));
+                    serve(in, out);
+                    out.flush();
+                }
+                catch (IOException e) {
+                    // The client went away or timed out; wait for the next
+                    // one.
+                }
+            }
+        }
+        finally {
+            tokenFile.delete();
+        }
+    }
+
+    /**
+     * Write a new random token to {@code f}, readable and writable only by
+     * its owner, and return it.
+     */
+    protected static byte[] writeToken(File f) throws IOException {
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : random) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        byte[] token = sb.toString().getBytes(StandardCharsets.US_ASCII);
+
+        // Make a new file, so that no one else can have it open already.
+        Path path = f.toPath();
+        Files.deleteIfExists(path);
+        try {
+            if (Files.getFileStore(path.toAbsolutePath().getParent())
+                     .supportsFileAttributeView("posix")) {
+                Files.createFile(path,
+                                 PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            }
+            else {
+                Files.createFile(path);
+                if (!f.setReadable(false, false) || !f.setReadable(true, true)
+                        || !f.setWritable(false, false)
+                        || !f.setWritable(true, true)) {
+                    throw new IOException("cannot restrict access to " + f);
+                }
+            }
+        }
+        catch (FileAlreadyExistsException e) {
+            throw new IOException("token file " + f
+                    + " was created by someone else");
+        }
+        Files.write(path, token);
+        return token;
+    }
+
+    /**
+     * Serve the requests read from {@code in} until it is exhausted,
+     * writing the answers to {@code out}.
+     */
+    public void serve(BufferedReader in, PrintStream out) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.trim().isEmpty()) continue;
+            int exitCode = compile(line, out);
+            out.println("exit " + exitCode);
+            out.flush();
+        }
+    }
+
+    /**
+     * Run the compilation requested by {@code line}, writing its output to
+     * {@code out}, and return its exit code.
+     */
+    public int compile(String line, PrintStream out) {
+        List<String> args = new ArrayList<>();
+        QuotedStringTokenizer st = new QuotedStringTokenizer(line);
+        while (st.hasMoreTokens()) {
+            args.add(st.nextToken());
+        }
+
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        PrintStream prefixed =
+                new PrintStream(new PrefixOutputStream(out, "| "), true);
+        System.setOut(prefixed);
+        System.setErr(prefixed);
+        Report.reset();
+
+        Request request = new Request();
+        boolean reusable = true;
+        try {
+            request.start(args.toArray(new String[args.size()]));
+            return 0;
+        }
+        catch (Main.TerminationException e) {
+            if (e.getMessage() != null) prefixed.println(e.getMessage());
+            return e.exitCode;
+        }
+        catch (RuntimeException | Error e) {
+            // Leave nothing from a compilation that failed this way to the
+            // next one.
+            reusable = false;
+            e.printStackTrace(prefixed);
+            return 1;
+        }
+        finally {
+            request.finish(reusable);
+            prefixed.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+    }
+
+    /**
+     * Run the compilation with the arguments {@code args}, reporting its
+     * errors to {@code eq}, as {@link Main#start(String[], ErrorQueue)} does,
+     * but with the sessions of this server.
+     */
+    public void compile(String[] args, ErrorQueue eq)
+            throws Main.TerminationException {
+        Report.reset();
+
+        Request request = new Request();
+        boolean reusable = true;
+        try {
+            request.start(args, eq);
+        }
+        catch (Main.TerminationException e) {
+            throw e;
+        }
+        catch (RuntimeException | Error e) {
+            reusable = false;
+            throw e;
+        }
+        finally {
+            request.finish(reusable);
+        }
+    }
+
+    /**
+     * Return the session for an extension whose options have just been
+     * parsed from {@code args}, making {@code ext} a new session if there is
+     * none for the same options.
+     */
+    protected Session session(ExtensionInfo ext, List<String> args,
+            Set<String> sources) {
+        if (!(ext instanceof AbstractExtensionInfo)) return null;
+
+        StringBuilder sb = new StringBuilder(ext.getClass().getName());
+        for (String arg : args) {
+            if (!sources.contains(arg)) {
+                sb.append('\0');
+                sb.append(arg);
+            }
+        }
+        String key = sb.toString();
+
+        Session s = sessions.get(key);
+        if (s != null && s.archivesUnchanged()) {
+            s.ext.resetCompilationState();
+            Options.global = s.ext.getOptions();
+        }
+        else {
+            s = new Session((AbstractExtensionInfo) ext);
+            sessions.put(key, s);
+        }
+        s.key = key;
+        return s;
+    }
+
+    /**
+     * A compilation run by the server.
+     */
+    protected class Request extends Main {
+        protected List<String> args = Collections.emptyList();
+        protected Session session;
+
+        @Override
+        public void start(String[] argv, ExtensionInfo ext, ErrorQueue eq)
+                throws TerminationException {
+            args = explodeOptions(argv);
+            super.start(argv, ext, eq);
+        }
+
+        @Override
+        protected Compiler createCompiler(ExtensionInfo ext, ErrorQueue eq) {
+            session = session(ext, args, sources());
+            if (session == null) return super.createCompiler(ext, eq);
+
+            Compiler compiler = super.createCompiler(session.ext, eq);
+            session.restore();
+            return compiler;
+        }
+
+        /**
+         * Keep the types of the session for the next compilation, or if
+         * {@code reusable} is false, or the types cannot be kept, drop the
+         * session.
+         */
+        protected void finish(boolean reusable) {
+            if (session == null) return;
+            if (!reusable || !session.harvest()) {
+                sessions.remove(session.key);
+            }
+        }
+    }
+
+    /**
+     * An extension kept for compilations with the same options, and the
+     * types from the boot class path that it has loaded.
+     */
+    protected static class Session {
+        protected final AbstractExtensionInfo ext;
+        protected String key;
+
+        /** The type system {@code platformTypes} belong to. */
+        protected TypeSystem ts;
+
+        /** Types loaded from archives on the boot class path, by name. */
+        protected Map<String, Named> platformTypes = Collections.emptyMap();
+
+        /** The archives the types were loaded from, and when they changed. */
+        protected Map<File, Long> archives = new HashMap<>();
+
+        protected Session(AbstractExtensionInfo ext) {
+            this.ext = ext;
+        }
+
+        protected boolean archivesUnchanged() {
+            for (Map.Entry<File, Long> e : archives.entrySet()) {
+                if (e.getKey().lastModified() != e.getValue()) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Install the types kept from the last compilation in the system
+         * resolver of the newly initialized type system.
+         */
+        protected void restore() {
+            TypeSystem ts = ext.typeSystem();
+            if (ts == this.ts) {
+                ts.systemResolver().installAll(platformTypes);
+            }
+            else {
+                // The extension has made a new type system; nothing kept
+                // belongs to it.
+                this.ts = ts;
+                platformTypes = Collections.emptyMap();
+                archives.clear();
+            }
+        }
+
+        /**
+         * Keep the types the last compilation loaded from archives on the
+         * boot class path. Return false if the type system refers to other
+         * types that the next compilation may not see the same way, namely
+         * {@code java.*} types not loaded from such archives.
+         */
+        protected boolean harvest() {
+            Set<File> boot = new HashSet<>();
+            for (File f : ext.getOptions().bootclasspathDirectories()) {
+                boot.add(f.getAbsoluteFile());
+            }
+
+            Map<String, Named> found = ts.systemResolver().found();
+            Map<String, Named> kept = new HashMap<>();
+            Set<String> packages = new HashSet<>();
+            for (Map.Entry<String, Named> e : found.entrySet()) {
+                Named n = e.getValue();
+                if (n instanceof Package) continue;
+
+                File archive = archive(n);
+                if (archive != null && boot.contains(archive)) {
+                    kept.put(e.getKey(), n);
+                    if (!archives.containsKey(archive)) {
+                        archives.put(archive, archive.lastModified());
+                    }
+                    if (n instanceof ClassType) {
+                        Package p = ((ClassType) n).package_();
+                        if (p != null) packages.add(p.fullName());
+                    }
+                }
+                else if (e.getKey().startsWith("java.")) {
+                    return false;
+                }
+            }
+
+            for (Map.Entry<String, Named> e : found.entrySet()) {
+                if (e.getValue() instanceof Package) {
+                    String name = e.getKey();
+                    for (String p : packages) {
+                        if (p.equals(name) || p.startsWith(name + ".")) {
+                            kept.put(name, e.getValue());
+                            break;
+                        }
+                    }
+                }
+            }
+
+            platformTypes = kept;
+            return true;
+        }
+
+        /**
+         * Return the archive type {@code n} was loaded from, or null if it
+         * was not loaded from a class file in an archive.
+         */
+        protected static File archive(Named n) {
+            if (!(n instanceof ParsedTypeObject)) return null;
+            LazyInitializer init = ((ParsedTypeObject) n).initializer();
+            if (!(init instanceof ClassFileLazyClassInitializer)) return null;
+
+            URI uri = ((ClassFileLazyClassInitializer) init).classFileURI();
+            if (uri == null || !"jar".equals(uri.getScheme())) return null;
+
+            String path = uri.getSchemeSpecificPart();
+            int sep = path.indexOf("!/");
+            if (sep < 0) return null;
+            try {
+                return new File(new URI(path.substring(0, sep))).getAbsoluteFile();
+            }
+            catch (URISyntaxException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * An output stream that writes a prefix before each line.
+     */
+    protected static class PrefixOutputStream extends FilterOutputStream {
+        protected final byte[] prefix;
+        protected boolean lineStart = true;
+
+        public PrefixOutputStream(OutputStream out, String prefix) {
+            super(out);
+            this.prefix = prefix.getBytes();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (lineStart) {
+                out.write(prefix);
+                lineStart = false;
+            }
+            out.write(b);
+            if (b == '\n') lineStart = true;
+        }
+    }
+}
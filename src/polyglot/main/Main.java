@@ -75,6 +75,9 @@ public class Main {
 
     private List<Job> jobs;
 
+    /** The post-compiler run while the compiler translates, or null. */
+    private PipelinedPostCompiler pipeline;
+
     public List<Job> jobs() {
         return jobs;
     }
@@ -175,8 +178,20 @@ public class Main {
                                       ext.compilerName());
         }
 
-        Compiler compiler = new Compiler(ext, eq);
+        Compiler compiler = createCompiler(ext, eq);
+
+        pipeline = createPipelinedPostCompiler(options, compiler, eq);
+        if (pipeline != null) compiler.setOutputListener(pipeline);
+        try {
+            compile(options, compiler, eq);
+        }
+        finally {
+            if (pipeline != null) pipeline.close();
+        }
+    }
 
+    private void compile(Options options, Compiler compiler, ErrorQueue eq)
+            throws TerminationException {
         long time0 = System.currentTimeMillis();
 
         if (!compiler.compileFiles(source)) {
@@ -207,6 +222,38 @@ public class Main {
         }
     }
 
+    /**
+     * The source files named on the command line of the last call to
+     * {@code start}.
+     */
+    protected Set<String> sources() {
+        return source;
+    }
+
+    /**
+     * Create the compiler for extension {@code ext}, whose options have been
+     * parsed from the command line.
+     */
+    protected Compiler createCompiler(ExtensionInfo ext, ErrorQueue eq) {
+        return new Compiler(ext, eq);
+    }
+
+    /**
+     * Create the post-compiler that compiles the output of {@code compiler}
+     * while it is still translating, or return null to post-compile the
+     * output once translation is done.
+     */
+    protected PipelinedPostCompiler createPipelinedPostCompiler(
+            Options options, Compiler compiler, ErrorQueue eq) {
+        if (options.post_compiler_batch <= 0 || options.post_compiler != null
+                || options.output_source_only || options.output_stdout)
+            return null;
+        return new PipelinedPostCompiler(options,
+                                         compiler,
+                                         getSystemJavacArgs(options),
+                                         eq);
+    }
+
     /**
      * Returns a list of arguments to pass to the system java compiler.
      */
@@ -227,6 +274,8 @@ public class Main {
 
     protected boolean invokePostCompiler(Options options, Compiler compiler,
             ErrorQueue eq) {
+        if (pipeline != null) return pipeline.finish();
+
         if (!options.output_source_only && !options.output_stdout) {
             try {
                 if (options.post_compiler == null) {
@@ -338,7 +387,7 @@ public class Main {
         return true;
     }
 
-    private static List<String> explodeOptions(String[] args)
+    static List<String> explodeOptions(String[] args)
             throws TerminationException {
         LinkedList<String> ll = new LinkedList<>();
 
@@ -130,12 +130,46 @@ public class Options {
     /** Use SimpleCodeWriter instead of OptimalCodeWriter */
     public boolean use_simple_code_writer;
 
+    /** Use StreamingCodeWriter instead of OptimalCodeWriter */
+    public boolean use_streaming_code_writer;
+
     /**
      * Parse "a" + "b" as "ab" to avoid very deep AST, e.g., for action tables,
      * and for serialization.
      */
     public boolean merge_strings;
 
+    /**
+     * Number of worker threads the scheduler may use to run job-local goals
+     * concurrently; 1 runs every goal on the calling thread.
+     */
+    public int parallelism;
+
+    /**
+     * Directory in which to cache the serialized signatures of compiled
+     * classes, or null for no cache.
+     */
+    public File signature_cache_directory;
+
+    /**
+     * Recompile only the sources that changed since the last incremental
+     * compilation, and the sources that depend on them.
+     */
+    public boolean incremental;
+
+    /**
+     * File in which to keep the class files loaded from the boot class path,
+     * or null for no snapshot.
+     */
+    public File boot_snapshot_file;
+
+    /**
+     * Number of translated files to hand to the in-process post-compiler at a
+     * time while translation continues, or 0 to run the post-compiler only
+     * once every source has been translated.
+     */
+    public int post_compiler_batch;
+
     public boolean classpath_given;
     public boolean bootclasspath_given;
 
@@ -314,6 +348,27 @@ public class Options {
         flags.add(new Switch("-preferclassfiles",
                              "prefer class files to source files even if the source is newer"));
 
+        flags.add(new OptFlag<File>("-sigcache",
+                                    "<directory>",
+                                    "cache class signatures in <directory>") {
+            @Override
+            public Arg<File> handle(String[] args, int index) {
+                return createArg(index + 1, new File(args[index]));
+            }
+        });
+
+        flags.add(new Switch("-incremental",
+                             "recompile only changed sources and their dependents (requires -sigcache)"));
+
+        flags.add(new OptFlag<File>("-bootsnapshot",
+                                    "<file>",
+                                    "keep the class files loaded from the boot class path in <file>") {
+            @Override
+            public Arg<File> handle(String[] args, int index) {
+                return createArg(index + 1, new File(args[index]));
+            }
+        });
+
         flags.add(new Switch("-assert", "recognize the assert keyword"));
 
         flags.add(new Switch("-fqcn", "output fully-qualified class names"));
@@ -332,6 +387,11 @@ public class Options {
                               "set the maximum width of the .java output files",
                               80));
 
+        flags.add(new IntFlag("-parallel",
+                              "<num>",
+                              "run independent per-file passes on <num> threads",
+                              1));
+
         flags.add(new OptFlag<String>("-postcompiler",
                                       "<compiler>",
                                       "run javac-like compiler after translation") {
@@ -342,6 +402,11 @@ public class Options {
             }
         });
 
+        flags.add(new IntFlag("-postbatch",
+                              "<num>",
+                              "post-compile translated files in batches of <num> while translating",
+                              0));
+
         flags.add(new OptFlag<String>("-postopts",
                                       "<options>",
                                       "options to pass to the compiler after translation") {
@@ -450,6 +515,8 @@ public class Options {
 
         flags.add(new Switch("-simpleoutput", "use SimpleCodeWriter"));
 
+        flags.add(new Switch("-streamingoutput", "use StreamingCodeWriter"));
+
         flags.add(new Switch("-mergestrings",
                              "parse concatenated string literals as one single string literal"));
 
@@ -557,6 +624,13 @@ public class Options {
         // If we are using an external post compiler,
         // we have to output files to disk
         if (post_compiler != null || keep_output_files) noOutputToFS = false;
+
+        // Only the in-process post-compiler can be pipelined.
+        if (post_compiler != null) post_compiler_batch = 0;
+
+        // Sources that are not recompiled are loaded as dependencies, which
+        // must not be compiled again.
+        if (incremental) compile_command_line_only = true;
     }
 
     /**
@@ -571,6 +645,18 @@ public class Options {
         if (!OptFlag.hasSourceArg(arguments)) {
             throw new UsageError("must specify at least one source file");
         }
+
+        boolean incremental = false;
+        boolean sigcache = false;
+        for (Arg<?> arg : arguments) {
+            if (arg.flag() == null) continue;
+            if (arg.flag().ids().contains("-incremental"))
+                incremental = (Boolean) arg.value();
+            if (arg.flag().ids().contains("-sigcache")) sigcache = true;
+        }
+        if (incremental && !sigcache) {
+            throw new UsageError("-incremental requires -sigcache");
+        }
     }
 
     /**
@@ -684,6 +770,15 @@ public class Options {
         else if (ids.contains("-preferclassfiles")) {
             setIgnoreModTimes((Boolean) arg.value());
         }
+        else if (ids.contains("-sigcache")) {
+            setSignatureCacheDirectory((File) arg.value());
+        }
+        else if (ids.contains("-incremental")) {
+            setIncremental((Boolean) arg.value());
+        }
+        else if (ids.contains("-bootsnapshot")) {
+            setBootSnapshotFile((File) arg.value());
+        }
         else if (ids.contains("-assert")) {
             setAssertions((Boolean) arg.value());
         }
@@ -702,9 +797,15 @@ public class Options {
         else if (ids.contains("-w")) {
             setOutputWidth((Integer) arg.value());
         }
+        else if (ids.contains("-parallel")) {
+            setParallelism((Integer) arg.value());
+        }
         else if (ids.contains("-postcompiler")) {
             setPostCompiler((String) arg.value());
         }
+        else if (ids.contains("-postbatch")) {
+            setPostCompilerBatch((Integer) arg.value());
+        }
         else if (ids.contains("-postopts")) {
             setPostCompilerOpts((String) arg.value());
         }
@@ -746,6 +847,9 @@ public class Options {
         else if (ids.contains("-simpleoutput")) {
             setSimpleOutput((Boolean) arg.value());
         }
+        else if (ids.contains("-streamingoutput")) {
+            setStreamingOutput((Boolean) arg.value());
+        }
         else if (ids.contains("-mergestrings")) {
             setMergeStrings((Boolean) arg.value());
         }
@@ -803,6 +907,18 @@ public class Options {
         ignore_mod_times = value;
     }
 
+    protected void setSignatureCacheDirectory(File value) {
+        signature_cache_directory = value;
+    }
+
+    protected void setIncremental(boolean value) {
+        incremental = value;
+    }
+
+    protected void setBootSnapshotFile(File value) {
+        boot_snapshot_file = value;
+    }
+
     protected void setAssertions(boolean value) {
         assertions = value;
     }
@@ -827,10 +943,18 @@ public class Options {
         output_width = value;
     }
 
+    protected void setParallelism(Integer value) {
+        parallelism = Math.max(1, value);
+    }
+
     protected void setPostCompiler(String value) {
         post_compiler = value;
     }
 
+    protected void setPostCompilerBatch(Integer value) {
+        post_compiler_batch = Math.max(0, value);
+    }
+
     protected void setPostCompilerOpts(String value) {
         post_compiler_opts = value;
     }
@@ -896,6 +1020,10 @@ public class Options {
         use_simple_code_writer = value;
     }
 
+    protected void setStreamingOutput(boolean value) {
+        use_streaming_code_writer = value;
+    }
+
     protected void setMergeStrings(boolean value) {
         merge_strings = value;
     }
@@ -0,0 +1,442 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import polyglot.filemanager.ExtFileObject;
+import polyglot.frontend.Compiler;
+import polyglot.frontend.DependencyGraph;
+import polyglot.frontend.Job;
+import polyglot.frontend.Source;
+import polyglot.types.Named;
+import polyglot.types.ParsedClassType;
+import polyglot.types.TypeSystem;
+import polyglot.util.ErrorInfo;
+import polyglot.util.ErrorQueue;
+import polyglot.util.StringUtil;
+
+/**
+ * Runs the in-process post-compiler on the output of a compilation while the
+ * compiler is still translating.
+ *
+ * The output files of a job are held back until every job that declares a
+ * class the job refers to has been translated as well, so that javac finds
+ * each class of the compilation either in the same batch or among the class
+ * files of an earlier batch, which the file manager of the javac tasks lists
+ * among the classes on the class path.  Batches of at least
+ * {@code Options.post_compiler_batch} files are compiled one at a time on a
+ * background thread.  Once translation is done, the files whose batch failed,
+ * for instance because of a dependency that was not recorded, are compiled
+ * again together with the files still held back, and only the errors of that
+ * last run are reported.
+ */
+public class PipelinedPostCompiler implements Compiler.OutputListener {
+    protected final Options options;
+    protected final ErrorQueue eq;
+    protected final List<String> javacArgs;
+    protected final boolean inMemory;
+
+    /** The file manager of the javac tasks. */
+    protected JavaFileManager fileManager;
+    protected StandardJavaFileManager standardFileManager;
+
+    /** The error that prevented the file manager from being set up, or null. */
+    protected Exception setupError;
+
+    protected final ExecutorService executor;
+
+    /** Translated jobs whose output is held back, by source. */
+    protected final Map<Source, Pending> waiting = new LinkedHashMap<>();
+
+    /** Sources whose output has been added to a batch. */
+    protected final Set<Source> scheduled = new HashSet<>();
+
+    /** Output files of the next batch. */
+    protected List<JavaFileObject> ready = new ArrayList<>();
+
+    /** All output files, in the order they were generated. */
+    protected final List<JavaFileObject> generated = new ArrayList<>();
+
+    protected final List<Future<Batch>> batches = new ArrayList<>();
+
+    public PipelinedPostCompiler(Options options, Compiler compiler,
+            List<String> javacArgs, ErrorQueue eq) {
+        this.options = options;
+        this.eq = eq;
+        this.javacArgs = javacArgs;
+        this.inMemory = options.noOutputToFS;
+        this.executor =
+                Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "polyglot-postcompiler");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+
+        try {
+            standardFileManager =
+                    Main.javaCompiler().getStandardFileManager(null,
+                                                               null,
+                                                               null);
+            configureFileManager(standardFileManager);
+            fileManager =
+                    new BatchFileManager(standardFileManager,
+                                         inMemory
+                                                 ? compiler.sourceExtension()
+                                                           .extFileManager()
+                                                 : null);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            setupError = e;
+        }
+    }
+
+    /**
+     * Set the locations of the file manager of the javac tasks.  Unlike the
+     * post-compiler run after translation, javac does not search the source
+     * output directory, which is still being written.  The class output
+     * directory is not on the class path either, since it may hold class
+     * files of other compilations; the classes of earlier batches are
+     * listed by the {@link BatchFileManager}.
+     */
+    protected void configureFileManager(StandardJavaFileManager fm)
+            throws IOException {
+        fm.setLocation(StandardLocation.PLATFORM_CLASS_PATH,
+                       options.defaultPlatformClasspath());
+
+        fm.setLocation(StandardLocation.SOURCE_PATH,
+                       Collections.<File> emptyList());
+
+        List<File> classpath = new ArrayList<>();
+        classpath.addAll(options.bootclasspathDirectories());
+        classpath.addAll(options.classpathDirectories());
+        fm.setLocation(StandardLocation.CLASS_PATH, classpath);
+
+        fm.setLocation(StandardLocation.CLASS_OUTPUT,
+                       Collections.singletonList(options.classOutputDirectory()));
+    }
+
+    @Override
+    public void outputGenerated(Job job, Collection<JavaFileObject> files) {
+        if (setupError != null || files.isEmpty()) return;
+
+        generated.addAll(files);
+        waiting.put(job.source(), new Pending(files, dependencies(job)));
+
+        // Schedule the largest set of held back jobs whose dependencies are
+        // all scheduled or in the set.
+        Set<Source> candidates = new HashSet<>(waiting.keySet());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Iterator<Source> i = candidates.iterator(); i.hasNext();) {
+                Set<Source> deps = waiting.get(i.next()).dependencies;
+                if (deps == null || !isScheduled(deps, candidates)) {
+                    i.remove();
+                    changed = true;
+                }
+            }
+        }
+
+        for (Iterator<Map.Entry<Source, Pending>> i =
+                waiting.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<Source, Pending> e = i.next();
+            if (candidates.contains(e.getKey())) {
+                ready.addAll(e.getValue().files);
+                scheduled.add(e.getKey());
+                i.remove();
+            }
+        }
+
+        if (ready.size() >= options.post_compiler_batch) {
+            batches.add(executor.submit(new Batch(ready)));
+            ready = new ArrayList<>();
+        }
+    }
+
+    private boolean isScheduled(Set<Source> deps, Set<Source> candidates) {
+        for (Source s : deps) {
+            if (!scheduled.contains(s) && !candidates.contains(s)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return the sources of the other jobs of the compilation that declare
+     * classes {@code job} refers to, or null if they are not known.
+     */
+    protected Set<Source> dependencies(Job job) {
+        DependencyGraph.Dependencies deps = job.dependencies();
+        if (deps == null) return null;
+
+        TypeSystem ts = job.extensionInfo().typeSystem();
+        Set<Source> sources = new HashSet<>();
+        for (String name : deps.referenced()) {
+            Named n = ts.systemResolver().check(name);
+            if (n instanceof ParsedClassType) {
+                Source s = ((ParsedClassType) n).fromSource();
+                if (s != null && !s.equals(job.source())) sources.add(s);
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Wait for the batches already submitted, then compile the remaining
+     * output files, and report the output of javac.
+     *
+     * @return false if the post-compiler could not be run.
+     */
+    public boolean finish() {
+        try {
+            if (setupError != null) throw setupError;
+
+            Set<JavaFileObject> rest = new HashSet<>(ready);
+            for (Pending p : waiting.values()) {
+                rest.addAll(p.files);
+            }
+            List<String> messages = new ArrayList<>();
+            for (Future<Batch> f : batches) {
+                Batch b = f.get();
+                if (b.okay) {
+                    if (!b.output.isEmpty()) messages.add(b.output);
+                }
+                else rest.addAll(b.files);
+            }
+
+            if (!rest.isEmpty()) {
+                List<JavaFileObject> files = new ArrayList<>(rest.size());
+                for (JavaFileObject jfo : generated) {
+                    if (rest.contains(jfo)) files.add(jfo);
+                }
+                if (Report.should_report(Main.verbose, 1))
+                    Report.report(1, "Post-compiling the remaining "
+                            + files.size() + " files");
+                messages.add(new Batch(files).call().output);
+            }
+
+            for (String m : messages) {
+                if (!m.isEmpty()) eq.enqueue(ErrorInfo.POST_COMPILER_ERROR, m);
+            }
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            eq.enqueue(ErrorInfo.POST_COMPILER_ERROR, e.getMessage());
+            return false;
+        }
+        catch (ExecutionException e) {
+            eq.enqueue(ErrorInfo.POST_COMPILER_ERROR, e.getCause()
+                                                      .getMessage());
+            return false;
+        }
+        catch (Exception e) {
+            eq.enqueue(ErrorInfo.POST_COMPILER_ERROR, e.getMessage());
+            return false;
+        }
+        finally {
+            close();
+        }
+    }
+
+    /** Stop the background thread and release the file manager. */
+    public void close() {
+        executor.shutdownNow();
+        if (standardFileManager != null) {
+            try {
+                standardFileManager.close();
+            }
+            catch (IOException e) {
+                // Nothing was written through it that is still open.
+            }
+        }
+    }
+
+    /** The output files of a translated job that are held back. */
+    protected static class Pending {
+        protected final Collection<JavaFileObject> files;
+        /** See {@code dependencies(Job)}. */
+        protected final Set<Source> dependencies;
+
+        protected Pending(Collection<JavaFileObject> files,
+                Set<Source> dependencies) {
+            this.files = files;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /** A javac task for some of the output files. */
+    protected class Batch implements Callable<Batch> {
+        protected final List<JavaFileObject> files;
+        protected boolean okay;
+        protected String output;
+
+        protected Batch(List<JavaFileObject> files) {
+            this.files = files;
+        }
+
+        @Override
+        public Batch call() {
+            if (Report.should_report(Main.verbose, 2))
+                Report.report(2, "Post-compiling " + files);
+
+            StringWriter err = new StringWriter();
+            CompilationTask task =
+                    Main.javaCompiler().getTask(err,
+                                                fileManager,
+                                                null,
+                                                javacArgs,
+                                                null,
+                                                files);
+            okay = task.call();
+            output = err.toString();
+            return this;
+        }
+    }
+
+    /**
+     * The file manager of the javac tasks.  It records the class files the
+     * tasks write, and lists them among the classes on the class path, so
+     * that a batch finds the classes of earlier batches and nothing else of
+     * the class output.  When the output is kept in memory, class files are
+     * written to the in-memory class output of the compiler.
+     */
+    protected static class BatchFileManager extends
+            ForwardingJavaFileManager<StandardJavaFileManager> {
+        /** The file manager of the compiler, if the output is in memory. */
+        protected final JavaFileManager extFM;
+
+        /** The class files written so far, by binary name. */
+        protected final Map<String, JavaFileObject> classes =
+                new ConcurrentHashMap<>();
+        protected final Map<JavaFileObject, String> binaryNames =
+                Collections.synchronizedMap(new HashMap<JavaFileObject, String>());
+
+        protected BatchFileManager(StandardJavaFileManager fm,
+                JavaFileManager extFM) {
+            super(fm);
+            this.extFM = extFM;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location,
+                String className, Kind kind, FileObject sibling)
+                throws IOException {
+            if (location != StandardLocation.CLASS_OUTPUT
+                    || kind != Kind.CLASS) {
+                return super.getJavaFileForOutput(location,
+                                                  className,
+                                                  kind,
+                                                  sibling);
+            }
+            JavaFileObject jfo =
+                    extFM != null
+                            ? extFM.getJavaFileForOutput(location,
+                                                         className,
+                                                         kind,
+                                                         sibling)
+                            : super.getJavaFileForOutput(location,
+                                                         className,
+                                                         kind,
+                                                         sibling);
+            classes.put(className, jfo);
+            binaryNames.put(jfo, className);
+            return jfo;
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(Location location,
+                String packageName, Set<Kind> kinds, boolean recurse)
+                throws IOException {
+            Iterable<JavaFileObject> files =
+                    super.list(location, packageName, kinds, recurse);
+            if (location != StandardLocation.CLASS_PATH
+                    || !kinds.contains(Kind.CLASS)) {
+                return files;
+            }
+
+            Set<JavaFileObject> result = new LinkedHashSet<>();
+            for (JavaFileObject jfo : files) {
+                result.add(jfo);
+            }
+            for (Map.Entry<String, JavaFileObject> e : classes.entrySet()) {
+                String pkg = StringUtil.getPackageComponent(e.getKey());
+                if (pkg.equals(packageName) || recurse
+                        && (packageName.isEmpty() || pkg.startsWith(packageName
+                                + "."))) {
+                    result.add(e.getValue());
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String inferBinaryName(Location location, JavaFileObject file) {
+            String name = binaryNames.get(file);
+            if (name != null) return name;
+            return super.inferBinaryName(location, file);
+        }
+
+        @Override
+        public boolean isSameFile(FileObject a, FileObject b) {
+            if (a instanceof ExtFileObject || b instanceof ExtFileObject)
+                return a.toUri().equals(b.toUri());
+            return super.isSameFile(a, b);
+        }
+    }
+}
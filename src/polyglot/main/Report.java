@@ -170,6 +170,17 @@ public class Report {
         noReporting = false;
     }
 
+    /**
+     * Forget the topics selected so far and the queue messages were written
+     * to, so that another compilation in the same virtual machine starts
+     * with no reporting.
+     */
+    public static void reset() {
+        reportTopics.clear();
+        noReporting = true;
+        eq = null;
+    }
+
     public static void setTopic(String topic, int level) {
         if (reportTopics.containsKey(topic)) reportTopics.put(topic, level);
     }
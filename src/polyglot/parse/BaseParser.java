@@ -26,7 +26,6 @@
 
 package polyglot.parse;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -62,18 +61,24 @@ public abstract class BaseParser extends java_cup.runtime.lr_parser {
     public final ErrorQueue eq;
     public final TypeSystem ts;
     public final NodeFactory nf;
-    protected Position prev_pos;
-    protected Position position;
 
     /**
-     * Keeps track of every token seen by the Parser
+     * The last two tokens read, since the parser does one token lookahead.
+     * Their positions are only computed when asked for.
      */
-    protected final List<Token> tokenStream;
+    protected Token prev_token;
+    protected Token token;
 
     /**
-     * Mapping from Pos(Line#, Col#) -> Index into tokenStream
+     * The last Javadoc token read, if no other token has been read since.
      */
-    protected final Map<Pair<Integer, Integer>, Integer> positionToTokenIndexMap;
+    protected JavadocToken pendingJavadoc;
+
+    /**
+     * Mapping from Pos(Line#, Col#) of a token to the Javadoc token that
+     * immediately precedes it.
+     */
+    protected final Map<Pair<Integer, Integer>, JavadocToken> javadocMap;
 
     @Override
     public final Class<?> getSymbolContainer() {
@@ -86,11 +91,7 @@ public abstract class BaseParser extends java_cup.runtime.lr_parser {
         eq = q;
         ts = t;
         nf = n;
-        prev_pos = Position.compilerGenerated();
-        position = Position.compilerGenerated();
-
-        tokenStream = new ArrayList<>();
-        positionToTokenIndexMap = new HashMap<>();
+        javadocMap = new HashMap<>();
     }
 
     /**
@@ -112,25 +113,29 @@ public abstract class BaseParser extends java_cup.runtime.lr_parser {
     }
 
     private void updateInternal(Token t) {
-        tokenStream.add(t);
-        positionToTokenIndexMap.put(new Pair<>(t.getPosition().line(),
-                                               t.getPosition().column()),
-                                    tokenStream.size() - 1);
-
-        // use two positions, since the parser does one token lookahead
-        position = prev_pos;
-        prev_pos = t.getPosition();
+        if (pendingJavadoc != null) {
+            Position pos = t.getPosition();
+            javadocMap.put(new Pair<>(pos.line(), pos.column()),
+                           pendingJavadoc);
+        }
+        pendingJavadoc = t instanceof JavadocToken ? (JavadocToken) t : null;
+
+        // use two tokens, since the parser does one token lookahead
+        token = prev_token;
+        prev_token = t;
     }
 
     public Position position() {
-        return position;
+        if (token == null) return Position.compilerGenerated();
+        return token.getPosition();
     }
 
     /**
      * Returns the current position of the parser, representing the position of a null production.
      */
     public Position emptyTokenPos() {
-        return prev_pos.startOf();
+        if (prev_token == null) return Position.compilerGenerated().startOf();
+        return prev_token.getPosition().startOf();
     }
 
     /**
@@ -394,15 +399,11 @@ public abstract class BaseParser extends java_cup.runtime.lr_parser {
     public Javadoc javadoc(Position pos) {
         if (pos == null) return null;
 
-        Integer index =
-                positionToTokenIndexMap.get(new Pair<>(pos.line(), pos.column()));
+        JavadocToken token =
+                javadocMap.get(new Pair<>(pos.line(), pos.column()));
 
-        if (index != null && index > 0 && index < tokenStream.size()) {
-            Token token = tokenStream.get(index - 1);
-            if (token instanceof JavadocToken)
-                return nf.Javadoc(token.getPosition(),
-                                  ((JavadocToken) token).getText());
-        }
+        if (token != null)
+            return nf.Javadoc(token.getPosition(), token.getText());
 
         return null;
     }
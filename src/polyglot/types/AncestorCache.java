@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import polyglot.frontend.SchedulerException;
+
+/**
+ * An {@code AncestorCache} memoizes, for each class type, the set of class
+ * declarations it descends from, so that {@code descendsFrom} queries
+ * between class types need not walk the class hierarchy.
+ *
+ * Ancestor sets are keyed by identity.  An ancestor set is computed only if
+ * every supertype in the hierarchy is a class type whose declaration the
+ * type system can identify; otherwise, queries fall back to walking the
+ * hierarchy.  When the supertypes of a class change, every cached set that
+ * includes it is discarded.
+ */
+public class AncestorCache {
+    protected TypeSystem_c ts;
+
+    /** Map from classes to the declarations they descend from, inclusive. */
+    protected Map<ParsedClassType, Set<ParsedClassType>> ancestors;
+
+    /** Map from classes to the classes whose cached ancestors include them. */
+    protected Map<ParsedClassType, List<ParsedClassType>> dependents;
+
+    /** Classes whose ancestors are being computed, to detect cycles. */
+    protected Set<ParsedClassType> inProgress;
+
+    /** Incremented whenever a cached ancestor set is discarded. */
+    protected int modCount;
+
+    public AncestorCache(TypeSystem_c ts) {
+        this.ts = ts;
+        this.ancestors = new IdentityHashMap<>();
+        this.dependents = new IdentityHashMap<>();
+        this.inProgress =
+                Collections.newSetFromMap(new IdentityHashMap<ParsedClassType, Boolean>());
+    }
+
+    /**
+     * Return true if {@code child} descends from {@code ancestor}, false if
+     * it does not, or null if the answer cannot be determined from the
+     * cache.  As for {@code TypeSystem.descendsFrom}, a class does not
+     * descend from itself.
+     */
+    public synchronized Boolean descendsFrom(ParsedClassType child,
+            ParsedClassType ancestor) {
+        if (child == ancestor) {
+            return Boolean.FALSE;
+        }
+
+        Set<ParsedClassType> s = ancestors(child);
+        if (s == null) {
+            return null;
+        }
+
+        return s.contains(ancestor);
+    }
+
+    /**
+     * Return the declarations {@code ct} descends from, including
+     * {@code ct} itself and {@code Object}, or null if they cannot be
+     * determined.  The returned set must not be modified.
+     */
+    public synchronized Set<ParsedClassType> ancestors(ParsedClassType ct) {
+        Set<ParsedClassType> s = ancestors.get(ct);
+        if (s != null) {
+            return s;
+        }
+
+        if (!inProgress.add(ct)) {
+            // A cyclic hierarchy; an error has been or will be reported.
+            return null;
+        }
+
+        try {
+            s = computeAncestors(ct);
+        }
+        catch (SchedulerException e) {
+            // The supertypes of some class are not yet resolved.  Let the
+            // caller walk the hierarchy, which will report the dependency.
+            return null;
+        }
+        finally {
+            inProgress.remove(ct);
+        }
+
+        if (s != null) {
+            ancestors.put(ct, s);
+            for (ParsedClassType a : s) {
+                List<ParsedClassType> l = dependents.get(a);
+                if (l == null) {
+                    l = new ArrayList<>(2);
+                    dependents.put(a, l);
+                }
+                l.add(ct);
+            }
+        }
+
+        return s;
+    }
+
+    protected Set<ParsedClassType> computeAncestors(ParsedClassType ct) {
+        Set<ParsedClassType> s =
+                Collections.newSetFromMap(new IdentityHashMap<ParsedClassType, Boolean>());
+        s.add(ct);
+
+        ClassType object = ts.Object();
+        if (ct == object) {
+            return s;
+        }
+
+        if (object instanceof ParsedClassType) {
+            s.add((ParsedClassType) object);
+        }
+
+        if (!ct.flags().isInterface()) {
+            Type superType = ct.superType();
+            if (superType != null && !addAncestors(s, superType)) {
+                return null;
+            }
+        }
+
+        for (Type t : ct.interfaces()) {
+            if (!addAncestors(s, t)) {
+                return null;
+            }
+        }
+
+        return s;
+    }
+
+    protected boolean addAncestors(Set<ParsedClassType> s, Type superType) {
+        ParsedClassType decl = ts.ancestorDeclaration(superType);
+        if (decl == null) {
+            return false;
+        }
+
+        Set<ParsedClassType> a = ancestors(decl);
+        if (a == null) {
+            return false;
+        }
+
+        s.addAll(a);
+        return true;
+    }
+
+    /**
+     * Discard the cached ancestors of {@code ct} and of every class that
+     * descends from it.
+     */
+    public synchronized void invalidate(ParsedClassType ct) {
+        List<ParsedClassType> l = dependents.remove(ct);
+        if (l != null) {
+            for (ParsedClassType d : l) {
+                if (ancestors.remove(d) != null) {
+                    modCount++;
+                }
+            }
+        }
+        if (ancestors.remove(ct) != null) {
+            modCount++;
+        }
+    }
+
+    /**
+     * Return a count of the discarded ancestor sets.  Results derived from
+     * the ancestors of a class remain valid as long as this count does not
+     * change.
+     */
+    public synchronized int modCount() {
+        return modCount;
+    }
+}
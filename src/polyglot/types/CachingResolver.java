@@ -29,6 +29,7 @@ package polyglot.types;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import polyglot.main.Report;
 import polyglot.util.CollectionUtil;
@@ -36,7 +37,9 @@ import polyglot.util.Copy;
 import polyglot.util.InternalCompilerError;
 
 /**
- * A {@code CachingResolver} memoizes another Resolver
+ * A {@code CachingResolver} memoizes another Resolver.  The cache may be
+ * read and updated concurrently; if two threads miss on the same name,
+ * both consult the inner resolver and the last result installed wins.
  */
 public class CachingResolver implements Resolver, Copy<CachingResolver> {
     protected Resolver inner;
@@ -78,7 +81,7 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
     public CachingResolver(Resolver inner, boolean cacheNotFound) {
         this.inner = inner;
         this.cacheNotFound = cacheNotFound;
-        this.cache = new HashMap<>();
+        this.cache = new ConcurrentHashMap<>();
     }
 
     public CachingResolver(Resolver inner) {
@@ -94,7 +97,7 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
     public CachingResolver copy() {
         try {
             CachingResolver r = (CachingResolver) super.clone();
-            r.cache = new HashMap<>(this.cache);
+            r.cache = new ConcurrentHashMap<>(this.cache);
             return r;
         }
         catch (CloneNotSupportedException e) {
@@ -118,6 +121,20 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
         return cache.values();
     }
 
+    /**
+     * Return the type objects found so far, keyed by the names they were
+     * found or installed under.
+     */
+    public Map<String, Named> found() {
+        Map<String, Named> m = new HashMap<>();
+        for (Map.Entry<String, CachedResult> e : cache.entrySet()) {
+            if (e.getValue() instanceof CachedResult.Success) {
+                m.put(e.getKey(), ((CachedResult.Success) e.getValue()).named);
+            }
+        }
+        return m;
+    }
+
     /**
      * Find a type object by name.
      * @param name The name to search for.
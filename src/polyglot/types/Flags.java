@@ -27,11 +27,14 @@
 package polyglot.types;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import polyglot.util.Copy;
 import polyglot.util.InternalCompilerError;
@@ -42,6 +45,12 @@ import polyglot.util.SerialVersionUID;
  * {@code Flags} is an immutable set of class, method, or field modifiers.
  * We represent package scope as the absence of private, public and protected
  * scope modifiers.
+ *
+ * Each flag name is assigned a bit when it is created, and set operations
+ * are performed on a {@code long} bit mask.  Flags with a compiler-generated
+ * position are interned, and all flags with the same bits share one set of
+ * names.  The set of names is the serialized form, so types encoded by
+ * earlier versions can still be decoded.
  */
 public class Flags implements Serializable, Copy<Flags> {
     private static final long serialVersionUID = SerialVersionUID.generate();
@@ -49,6 +58,31 @@ public class Flags implements Serializable, Copy<Flags> {
     protected Set<String> flags;
     protected Position position;
 
+    /**
+     * The bits of the flags in {@code flags}, with {@code VALID} set once
+     * computed.  Zero after deserialization.
+     */
+    protected transient long bits;
+
+    /** Marks {@code bits} as computed; never the bit of a flag. */
+    protected static final long VALID = Long.MIN_VALUE;
+
+    /** Map from flag names to their bit. */
+    protected static final Map<String, Long> bitForName =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Map from bits to the shared, sorted set of flag names.  The sets are
+     * unmodifiable, since every {@code Flags} with the same bits, on every
+     * thread, returns the same set from {@link #flags()}.
+     */
+    protected static final Map<Long, Set<String>> namesForBits =
+            new ConcurrentHashMap<>();
+
+    /** Map from bits to the interned compiler-generated flags. */
+    protected static final ConcurrentMap<Long, Flags> interned =
+            new ConcurrentHashMap<>();
+
     protected static class FlagComparator implements Comparator<String>,
             Serializable {
         private static final long serialVersionUID =
@@ -104,10 +138,10 @@ public class Flags implements Serializable, Copy<Flags> {
     public static Flags createFlag(String name, Flags after) {
         addToOrder(name, after);
 
-        return new Flags(name);
+        return intern(VALID | bitFor(name));
     }
 
-    public static void addToOrder(String name, Flags after) {
+    public static synchronized void addToOrder(String name, Flags after) {
         Map<String, Integer> ordering = FlagComparator.ordering;
         Map<Integer, String> revOrdering = FlagComparator.revOrdering;
         if (ordering.containsKey(name))
@@ -132,22 +166,108 @@ public class Flags implements Serializable, Copy<Flags> {
         }
         ordering.put(name, index);
         revOrdering.put(index, name);
+
+        // The order of existing name sets may have changed.
+        namesForBits.clear();
+    }
+
+    /**
+     * Return the bit of the flag {@code name}, allocating one if this is
+     * the first time the name is seen.  Names may be seen before they are
+     * created by {@code createFlag} when deserializing types.
+     */
+    protected static long bitFor(String name) {
+        Long bit = bitForName.get(name);
+        if (bit != null) return bit;
+
+        synchronized (bitForName) {
+            bit = bitForName.get(name);
+            if (bit == null) {
+                if (bitForName.size() >= 63) {
+                    throw new InternalCompilerError("Cannot create flag "
+                            + name + ": too many flags.");
+                }
+                bit = 1L << bitForName.size();
+                bitForName.put(name, bit);
+            }
+            return bit;
+        }
+    }
+
+    /** Return the sorted set of names of the flags in {@code bits}. */
+    protected static Set<String> namesFor(long bits) {
+        Set<String> names = namesForBits.get(bits);
+        if (names == null) {
+            Set<String> sorted = new TreeSet<>(FlagComparator.instance);
+            for (Map.Entry<String, Long> e : bitForName.entrySet()) {
+                if ((bits & e.getValue()) != 0) {
+                    sorted.add(e.getKey());
+                }
+            }
+            names = Collections.unmodifiableSet(sorted);
+            namesForBits.put(bits, names);
+        }
+        return names;
+    }
+
+    /** Return the interned compiler-generated flags for {@code bits}. */
+    protected static Flags intern(long bits) {
+        Flags f = interned.get(bits);
+        if (f == null) {
+            f = new Flags(bits, Position.COMPILER_GENERATED);
+            Flags g = interned.putIfAbsent(bits, f);
+            if (g != null) f = g;
+        }
+        return f;
+    }
+
+    /**
+     * Return flags for {@code bits} at {@code position}, reusing the
+     * interned flags if {@code position} is the default compiler-generated
+     * position.
+     */
+    protected static Flags flagsFor(long bits, Position position) {
+        if (position == Position.COMPILER_GENERATED) {
+            return intern(bits);
+        }
+        return new Flags(bits, position);
     }
 
     /**
      * Effects: returns a new access flags object with no access flags set.
      */
     protected Flags() {
-        this.flags = new TreeSet<>(FlagComparator.instance);
-        position = Position.compilerGenerated();
+        this(VALID, Position.compilerGenerated());
     }
 
     protected Flags(String name) {
-        this();
-        flags.add(name);
+        this(VALID | bitFor(name), Position.compilerGenerated());
+    }
+
+    protected Flags(long bits, Position position) {
+        this.bits = bits;
+        this.flags = namesFor(bits);
+        this.position = position;
     }
 
+    /** Return the bits of these flags, including {@code VALID}. */
+    protected final long bits() {
+        long b = bits;
+        if (b == 0) {
+            b = VALID;
+            for (String name : flags) {
+                b |= bitFor(name);
+            }
+            // Share the unmodifiable set of names instead of the one read.
+            flags = namesFor(b);
+            bits = b;
+        }
+        return b;
+    }
+
+    /** Return the names of these flags, as an unmodifiable set. */
     public Set<String> flags() {
+        bits();
         return this.flags;
     }
 
@@ -186,62 +306,48 @@ public class Flags implements Serializable, Copy<Flags> {
      * Create new flags with the flags in {@code other} also set.
      */
     public Flags set(Flags other) {
-        Flags f = new Flags();
-        f.flags.addAll(this.flags);
-        f.flags.addAll(other.flags);
+        long b = bits() | other.bits();
 
         Position start = Position.first(position, other.position);
         Position end = Position.last(position, other.position);
 
         if (start == null || end == null) {
-            f.position = Position.compilerGenerated();
+            return flagsFor(b, Position.compilerGenerated());
         }
         else {
-            f.position = new Position(start, end);
+            return new Flags(b, new Position(start, end));
         }
-
-        return f;
     }
 
     /**
      * Create new flags with the flags in {@code other} cleared.
      */
     public Flags clear(Flags other) {
-        Flags f = new Flags();
-        f.flags.addAll(this.flags);
-        f.flags.removeAll(other.flags);
-        f.position = Position.compilerGenerated();
-        return f;
+        long b = bits() & ~other.bits() | VALID;
+        return flagsFor(b, Position.compilerGenerated());
     }
 
     /**
      * Create new flags with only flags in {@code other} set.
      */
     public Flags retain(Flags other) {
-        Flags f = new Flags();
-        f.flags.addAll(this.flags);
-        f.flags.retainAll(other.flags);
-        f.position = Position.compilerGenerated();
-        return f;
+        long b = bits() & other.bits();
+        return flagsFor(b, Position.compilerGenerated());
     }
 
     /**
      * Check if <i>any</i> flags in {@code other} are set.
      */
     public boolean intersects(Flags other) {
-        for (String name : this.flags) {
-            if (other.flags.contains(name)) {
-                return true;
-            }
-        }
-        return false;
+        return (bits() & other.bits()) != VALID;
     }
 
     /**
      * Check if <i>all</i> flags in {@code other} are set.
      */
     public boolean contains(Flags other) {
-        return this.flags.containsAll(other.flags);
+        long b = other.bits();
+        return (bits() & b) == b;
     }
 
     /**
@@ -578,15 +684,16 @@ public class Flags implements Serializable, Copy<Flags> {
 
     @Override
     public int hashCode() {
-        return flags.hashCode();
+        long b = bits();
+        return (int) (b ^ (b >>> 32));
     }
 
     @Override
     public boolean equals(Object o) {
-        return o instanceof Flags && flags.equals(((Flags) o).flags);
+        return o instanceof Flags && bits() == ((Flags) o).bits();
     }
 
     public boolean isEmpty() {
-        return flags.isEmpty();
+        return bits() == VALID;
     }
 }
@@ -28,10 +28,10 @@ package polyglot.types;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 import polyglot.main.Report;
 import polyglot.util.CollectionUtil;
@@ -44,7 +44,8 @@ import polyglot.util.StringUtil;
  * corresponds to a particular source file.
  * <p>
  * It has a set of package and class imports, which caches the results of
- * lookups for future reference.
+ * lookups for future reference.  Lookups may be made concurrently once the
+ * imports have been added.
  */
 public class ImportTable implements Resolver {
     protected TypeSystem ts;
@@ -126,7 +127,7 @@ public class ImportTable implements Resolver {
         sourcePos = src != null ? new Position(null, src) : null;
         this.pkg = pkg;
 
-        map = new HashMap<>();
+        map = new ConcurrentHashMap<>();
         typeOnDemandImports = new ArrayList<>();
         lazyImports = new ArrayList<>();
         lazyImportPositions = new ArrayList<>();
@@ -150,7 +151,7 @@ public class ImportTable implements Resolver {
     /**
      * Add a class import.
      */
-    public void addClassImport(String className, Position pos) {
+    public synchronized void addClassImport(String className, Position pos) {
         if (Report.should_report(TOPICS, 2))
             Report.report(2, this + ": lazy import " + className);
 
@@ -398,7 +399,7 @@ public class ImportTable implements Resolver {
     /**
      * Load the class imports, lazily.
      */
-    protected void lazyImport() throws SemanticException {
+    protected synchronized void lazyImport() throws SemanticException {
         if (lazyImports.isEmpty()) {
             return;
         }
@@ -149,16 +149,34 @@ public class LoadedClassResolver implements TopLevelResolver {
      */
     protected ClassType getEncodedType(ClassFile clazz, String name)
             throws SemanticException {
+        return getEncodedType(clazz.encodedClassType(version.name()),
+                              clazz.compilerVersion(version.name()),
+                              clazz.name(),
+                              clazz.name() + "@" + clazz.getClassFileURI(),
+                              name);
+    }
+
+    /**
+     * Decode a type encoded by {@code TypeEncoder}.
+     * @param encoded The encoded type.
+     * @param compilerVersion The version of the compiler that encoded it.
+     * @param origin The name of the class the encoding was found in.
+     * @param location Where the encoding was found, for error messages.
+     * @param name The name of the type to decode.
+     */
+    protected ClassType getEncodedType(String encoded, String compilerVersion,
+            String origin, String location, String name)
+            throws SemanticException {
         // At this point we've decided to go with the Class. So if something
         // goes wrong here, we have only one choice, to throw an exception.
 
         // Check to see if it has serialized info. If so then check the
         // version.
-        int comp = checkCompilerVersion(clazz.compilerVersion(version.name()));
+        int comp = checkCompilerVersion(compilerVersion);
 
         if (comp == NOT_COMPATIBLE) {
             throw new SemanticException("Unable to find a suitable definition of "
-                    + clazz.name()
+                    + origin
                     + ". Try recompiling or obtaining "
                     + " a newer version of the class file.");
         }
@@ -183,9 +201,9 @@ public class LoadedClassResolver implements TopLevelResolver {
 
         try {
             if (Report.should_report(Report.serialize, 1))
-                Report.report(1, "Decoding " + name + " in " + clazz);
+                Report.report(1, "Decoding " + name + " in " + location);
 
-            dt = te.decode(clazz.encodedClassType(version.name()), name);
+            dt = te.decode(encoded, name);
 
             if (dt == null) {
                 if (Report.should_report(Report.serialize, 1))
@@ -297,7 +315,7 @@ public class LoadedClassResolver implements TopLevelResolver {
 
                 if (Report.should_report(report_topics, 2))
                     Report.report(2, "Returning serialized ClassType for "
-                            + clazz.name() + ".");
+                            + origin + ".");
 
                 okay = true;
                 return ct;
@@ -305,18 +323,17 @@ public class LoadedClassResolver implements TopLevelResolver {
             else {
                 if (Report.should_report(Report.serialize, 2))
                     Report.report(2, "Failing to deserialize: Class " + name
-                            + " not found in " + clazz.name() + ".");
+                            + " not found in " + origin + ".");
                 throw new SemanticException("Class " + name + " not found in "
-                        + clazz.name() + ".");
+                        + origin + ".");
             }
         }
         catch (InvalidClassException e) {
             if (Report.should_report(Report.serialize, 2))
                 Report.report(2, "Failing to deserialize: Bad serialization: "
-                        + clazz.name() + "@" + clazz.getClassFileURI());
+                        + location);
 
-            throw new BadSerializationException(clazz.name() + "@"
-                    + clazz.getClassFileURI());
+            throw new BadSerializationException(location);
         }
         catch (UnavailableTypeException e) {
             throw e;
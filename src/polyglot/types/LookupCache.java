@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import polyglot.util.LRUMap;
+
+/**
+ * A {@code LookupCache} memoizes the results of member lookups, such as
+ * overload resolution, so that resolving the same call repeatedly does not
+ * walk the class hierarchy each time.
+ *
+ * Entries are keyed by a lookup kind, a member name, and the identities of
+ * the types involved; lookups on types that are equal but not identical
+ * simply miss.  Each entry records the classes it depends on, and each
+ * class has a generation that starts anew whenever its members, flags or
+ * supertypes change, invalidating only the entries that depend on it.  An
+ * entry whose dependencies are not known is invalidated by a change to any
+ * class.  Only successful lookups are cached, so errors are always reported
+ * afresh.
+ */
+public class LookupCache {
+    /** The maximum number of entries retained. */
+    protected static final int CACHE_SIZE = 16 * 1024;
+
+    protected Map<Key, Entry> entries;
+
+    /** The current generation, which starts anew on every invalidation. */
+    protected int generation;
+
+    /** The current generation of each class that has changed. */
+    protected Map<Object, Integer> classGenerations;
+
+    /** The number of changes to any class. */
+    protected int changes;
+
+    public LookupCache() {
+        this.entries = new LRUMap<>(CACHE_SIZE);
+        this.classGenerations = new IdentityHashMap<>();
+    }
+
+    /**
+     * Return the result cached for {@code key}, or null if there is none or
+     * it has been invalidated.
+     */
+    public synchronized Object get(Key key) {
+        Entry e = entries.get(key);
+        if (e == null || e.generation != generation) {
+            return null;
+        }
+        if (e.dependencies == null) {
+            return e.changes == changes ? e.value : null;
+        }
+        for (int i = 0; i < e.dependencies.length; i++) {
+            if (generation(e.dependencies[i]) != e.generations[i]) {
+                return null;
+            }
+        }
+        return e.value;
+    }
+
+    /**
+     * Cache {@code value} as the result for {@code key}, which depends on
+     * the classes {@code dependencies}, or on every class if
+     * {@code dependencies} is null.
+     */
+    public synchronized void put(Key key, Object value,
+            Collection<?> dependencies) {
+        Object[] deps = null;
+        int[] generations = null;
+        if (dependencies != null) {
+            deps = dependencies.toArray();
+            generations = new int[deps.length];
+            for (int i = 0; i < deps.length; i++) {
+                generations[i] = generation(deps[i]);
+            }
+        }
+        entries.put(key, new Entry(value, generation, deps, generations,
+                                   changes));
+    }
+
+    /** Invalidate every cached result. */
+    public synchronized void invalidate() {
+        generation++;
+    }
+
+    /** Invalidate the cached results that depend on the class {@code c}. */
+    public synchronized void invalidate(Object c) {
+        classGenerations.put(c, generation(c) + 1);
+        changes++;
+    }
+
+    protected int generation(Object c) {
+        Integer g = classGenerations.get(c);
+        return g == null ? 0 : g;
+    }
+
+    /**
+     * Return a key for a lookup of {@code kind} for {@code name}.  The
+     * remaining parts are compared by identity; a part that is a list is
+     * compared element by element.
+     */
+    public static Key key(String kind, String name, Object... parts) {
+        return new Key(kind, name, parts);
+    }
+
+    protected static class Entry {
+        protected final Object value;
+        protected final int generation;
+        /** The classes the value depends on, or null if not known. */
+        protected final Object[] dependencies;
+        /** The generations of {@code dependencies} when it was cached. */
+        protected final int[] generations;
+        /** The number of changes when it was cached. */
+        protected final int changes;
+
+        protected Entry(Object value, int generation, Object[] dependencies,
+                int[] generations, int changes) {
+            this.value = value;
+            this.generation = generation;
+            this.dependencies = dependencies;
+            this.generations = generations;
+            this.changes = changes;
+        }
+    }
+
+    public static class Key {
+        protected final String kind;
+        protected final String name;
+        protected final Object[] parts;
+        protected final int hash;
+
+        protected Key(String kind, String name, Object[] parts) {
+            this.kind = kind;
+            this.name = name;
+            this.parts = parts;
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i] instanceof List) {
+                    // Copy, since the caller may reuse the list.
+                    parts[i] = new ListPart(((List<?>) parts[i]).toArray());
+                }
+            }
+            int h = kind.hashCode() * 31 + (name == null ? 0 : name.hashCode());
+            for (Object o : parts) {
+                h = h * 31
+                        + (o instanceof ListPart
+                                ? o.hashCode() : System.identityHashCode(o));
+            }
+            this.hash = h;
+        }
+
+        /**
+         * The parts of the key, with the elements of a list in place of
+         * the list.
+         */
+        public List<Object> parts() {
+            List<Object> l = new ArrayList<>(parts.length);
+            for (Object o : parts) {
+                if (o instanceof ListPart) {
+                    l.addAll(Arrays.asList(((ListPart) o).elements));
+                }
+                else {
+                    l.add(o);
+                }
+            }
+            return l;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            if (hash != that.hash || !kind.equals(that.kind)
+                    || parts.length != that.parts.length) return false;
+            if (name == null ? that.name != null : !name.equals(that.name))
+                return false;
+            for (int i = 0; i < parts.length; i++) {
+                Object a = parts[i];
+                Object b = that.parts[i];
+                if (a instanceof ListPart ? !a.equals(b) : a != b)
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /** The elements of a list that is part of a key. */
+    protected static final class ListPart {
+        protected final Object[] elements;
+
+        protected ListPart(Object[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 1;
+            for (Object o : elements)
+                h = h * 31 + System.identityHashCode(o);
+            return h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ListPart)) return false;
+            Object[] those = ((ListPart) o).elements;
+            if (elements.length != those.length) return false;
+            for (int i = 0; i < elements.length; i++)
+                if (elements[i] != those[i]) return false;
+            return true;
+        }
+    }
+}
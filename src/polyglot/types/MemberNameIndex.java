@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index from names to the members of a list that have that name, so that
+ * classes with many members can be searched by name without scanning.
+ *
+ * The index is built lazily from the list passed to {@link #named}, and is
+ * rebuilt when that list is replaced, changes size, or the index is
+ * explicitly invalidated.  The lists returned by {@link #named} are never
+ * modified afterwards; they must not be modified by the caller.
+ */
+public abstract class MemberNameIndex<T> {
+    protected List<? extends T> indexed;
+    protected int indexedSize;
+    protected Map<String, List<T>> byName;
+
+    /** Return the name of {@code member}. */
+    protected abstract String name(T member);
+
+    /**
+     * Return the members of {@code members} named {@code name}, in list
+     * order.
+     */
+    public synchronized List<T> named(List<? extends T> members, String name) {
+        if (byName == null || members != indexed
+                || members.size() != indexedSize) {
+            rebuild(members);
+        }
+        List<T> l = byName.get(name);
+        return l == null ? Collections.<T> emptyList() : l;
+    }
+
+    /**
+     * Return the first member of {@code members} named {@code name}, or
+     * null if there is none.
+     */
+    public T first(List<? extends T> members, String name) {
+        List<T> l = named(members, name);
+        return l.isEmpty() ? null : l.get(0);
+    }
+
+    /** Discard the index; it is rebuilt on the next lookup. */
+    public synchronized void invalidate() {
+        byName = null;
+        indexed = null;
+    }
+
+    protected void rebuild(List<? extends T> members) {
+        Map<String, List<T>> m = new HashMap<>();
+        for (T member : members) {
+            String name = name(member);
+            List<T> l = m.get(name);
+            if (l == null) {
+                l = new ArrayList<>(1);
+                m.put(name, l);
+            }
+            l.add(member);
+        }
+        byName = m;
+        indexed = members;
+        indexedSize = members.size();
+    }
+}
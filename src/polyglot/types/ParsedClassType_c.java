@@ -69,6 +69,11 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
 
     protected transient List<ClassType> memberClasses;
 
+    /** Indexes of the members by name, built on demand. */
+    protected transient MemberNameIndex<MethodInstance> methodIndex;
+    protected transient MemberNameIndex<FieldInstance> fieldIndex;
+    protected transient MemberNameIndex<ClassType> memberClassIndex;
+
     public LazyClassInitializer init() {
         return init;
     }
@@ -185,11 +190,13 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
     @Override
     public void setFlags(Flags flags) {
         this.flags = flags;
+        ts.membersChanged(this);
     }
 
     @Override
     public void flags(Flags flags) {
         this.flags = flags;
+        ts.membersChanged(this);
     }
 
     @Override
@@ -234,56 +241,69 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
     @Override
     public void superType(Type t) {
         this.superType = t;
+        ts.supertypesChanged(this);
     }
 
     @Override
     public void addInterface(ReferenceType t) {
         interfaces.add(t);
+        ts.supertypesChanged(this);
     }
 
     @Override
     public void addMethod(MethodInstance mi) {
         methods.add(mi);
+        if (methodIndex != null) methodIndex.invalidate();
+        ts.membersChanged(this);
     }
 
     @Override
     public void addConstructor(ConstructorInstance ci) {
         constructors.add(ci);
+        ts.membersChanged(this);
     }
 
     @Override
     public void addField(FieldInstance fi) {
         fields.add(fi);
+        if (fieldIndex != null) fieldIndex.invalidate();
     }
 
     @Override
     public void addMemberClass(ClassType t) {
         memberClasses.add(t);
+        if (memberClassIndex != null) memberClassIndex.invalidate();
     }
 
     @Override
     public void setInterfaces(List<? extends ReferenceType> l) {
         this.interfaces = new ArrayList<>(l);
+        ts.supertypesChanged(this);
     }
 
     @Override
     public void setMethods(List<? extends MethodInstance> l) {
         this.methods = new ArrayList<>(l);
+        if (methodIndex != null) methodIndex.invalidate();
+        ts.membersChanged(this);
     }
 
     @Override
     public void setFields(List<? extends FieldInstance> l) {
         this.fields = new ArrayList<>(l);
+        if (fieldIndex != null) fieldIndex.invalidate();
     }
 
     @Override
     public void setConstructors(List<? extends ConstructorInstance> l) {
         this.constructors = new ArrayList<>(l);
+        ts.membersChanged(this);
     }
 
     @Override
     public void setMemberClasses(List<? extends ClassType> l) {
         this.memberClasses = new ArrayList<>(l);
+        if (memberClassIndex != null) memberClassIndex.invalidate();
     }
 
     @Override
@@ -326,19 +346,55 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
         // returned is canonical.
         init.initMethods();
 
-        List<MethodInstance> l = new LinkedList<>();
+        List<MethodInstance> l = methodIndex().named(methods, name);
 
-        for (MethodInstance mi : methods) {
-            if (mi.name().equals(name)) {
-                if (!mi.isCanonical()) {
-                    // Force an exception to get thrown.
-                    init.canonicalMethods();
-                }
-                l.add(mi);
+        for (MethodInstance mi : l) {
+            if (!mi.isCanonical()) {
+                // Force an exception to get thrown.
+                init.canonicalMethods();
             }
         }
 
-        return l;
+        return new ArrayList<>(l);
+    }
+
+    /** Return the index of the methods by name. */
+    protected MemberNameIndex<MethodInstance> methodIndex() {
+        if (methodIndex == null) {
+            methodIndex = new MemberNameIndex<MethodInstance>() {
+                @Override
+                protected String name(MethodInstance mi) {
+                    return mi.name();
+                }
+            };
+        }
+        return methodIndex;
+    }
+
+    /** Return the index of the fields by name. */
+    protected MemberNameIndex<FieldInstance> fieldIndex() {
+        if (fieldIndex == null) {
+            fieldIndex = new MemberNameIndex<FieldInstance>() {
+                @Override
+                protected String name(FieldInstance fi) {
+                    return fi.name();
+                }
+            };
+        }
+        return fieldIndex;
+    }
+
+    /** Return the index of the member classes by name. */
+    protected MemberNameIndex<ClassType> memberClassIndex() {
+        if (memberClassIndex == null) {
+            memberClassIndex = new MemberNameIndex<ClassType>() {
+                @Override
+                protected String name(ClassType ct) {
+                    return ct.name();
+                }
+            };
+        }
+        return memberClassIndex;
     }
 
     /** Return an immutable list of fields */
@@ -359,17 +415,20 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
         // in Jx or Jif.
         init.initFields();
 
-        for (FieldInstance fi : fields) {
-            if (fi.name().equals(name)) {
-                if (!fi.isCanonical()) {
-                    // Force an exception to get thrown.
-                    init.canonicalFields();
-                }
-                return fi;
-            }
+        FieldInstance fi = fieldIndex().first(fields, name);
+        if (fi != null && !fi.isCanonical()) {
+            // Force an exception to get thrown.
+            init.canonicalFields();
         }
 
-        return null;
+        return fi;
+    }
+
+    /** Get a member class of the class by name. */
+    @Override
+    public ClassType memberClassNamed(String name) {
+        init.initMemberClasses();
+        return memberClassIndex().first(memberClasses, name);
     }
 
     /** Return an immutable list of interfaces */
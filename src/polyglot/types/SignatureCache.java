@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.types;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import polyglot.frontend.Source;
+import polyglot.main.Report;
+import polyglot.util.InternalCompilerError;
+
+/**
+ * A {@code SignatureCache} keeps the encoded type information of compiled
+ * classes in a directory, so that later compilations can load the signature
+ * of a class whose source has not changed without parsing and type checking
+ * the source again.
+ * <p>
+ * There is one file per class, named after the class and grouped by the
+ * type system key of the compiler that wrote it.  Each file records the
+ * compiler version, the canonical path of the source file and a digest of
+ * its contents; an entry is only returned if the file at that path still has
+ * the same digest.  Only sources that are files can be cached.
+ */
+public class SignatureCache {
+    private static final int MAGIC = 0x4a4c5332; // "JLS2"
+
+    /**
+     * A cached signature.
+     */
+    public static class Entry {
+        protected final String compilerVersion;
+        protected final String encodedType;
+
+        protected Entry(String compilerVersion, String encodedType) {
+            this.compilerVersion = compilerVersion;
+            this.encodedType = encodedType;
+        }
+
+        /** The version of the compiler that encoded the type. */
+        public String compilerVersion() {
+            return compilerVersion;
+        }
+
+        /** The type, as encoded by {@code TypeEncoder}. */
+        public String encodedType() {
+            return encodedType;
+        }
+    }
+
+    protected final File directory;
+
+    /** Digests of the sources seen so far, keyed by path. */
+    protected final Map<String, String> digests;
+
+    /**
+     * Create a signature cache.
+     * @param root The cache directory.
+     * @param typeSystemKey The name of the compiler's version, which keeps
+     *          the signatures of different extensions apart.
+     */
+    public SignatureCache(File root, String typeSystemKey) {
+        this.directory = new File(root, typeSystemKey);
+        this.digests = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The directory holding the signatures.
+     */
+    public File directory() {
+        return directory;
+    }
+
+    /**
+     * The file holding the signature of the class {@code name}.
+     */
+    public File location(String name) {
+        return new File(directory, name + ".sig");
+    }
+
+    /**
+     * Return the signature stored for {@code name}, or null if there is none
+     * or if {@code source} has changed since it was stored.
+     */
+    public Entry lookup(String name, Source source) {
+        return find(name, canonicalPath(source.path()));
+    }
+
+    /**
+     * Return the signature stored for {@code name}, provided that it was
+     * compiled from the source at the canonical path {@code sourcePath} and
+     * that source is unchanged.
+     */
+    protected Entry find(String name, String sourcePath) {
+        File f = location(name);
+        if (!f.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+
+            String compilerVersion = in.readUTF();
+            String path = in.readUTF();
+            String digest = in.readUTF();
+
+            if (!path.equals(sourcePath) || !new File(path).isFile()
+                    || !digest.equals(digest(path))) {
+                if (Report.should_report(TOPIC, 3))
+                    Report.report(3, "Stale signature for " + name + " in " + f);
+                return null;
+            }
+
+            byte[] encoded = new byte[in.readInt()];
+            in.readFully(encoded);
+
+            if (Report.should_report(TOPIC, 2))
+                Report.report(2, "Found signature for " + name + " in " + f);
+
+            return new Entry(compilerVersion,
+                             new String(encoded, StandardCharsets.UTF_8));
+        }
+        catch (IOException e) {
+            if (Report.should_report(TOPIC, 1))
+                Report.report(1, "Unable to read " + f + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store the signature of the class {@code name}, compiled from
+     * {@code source}.  Failures to write the cache are reported but otherwise
+     * ignored.
+     */
+    public void store(String name, Source source, String compilerVersion,
+            String encodedType) {
+        File f = location(name);
+
+        try {
+            Files.createDirectories(directory.toPath());
+
+            // Write to a temporary file and rename it, so that a concurrent
+            // compilation never reads a partly written entry.
+            File tmp = File.createTempFile("sig", ".tmp", directory);
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                byte[] encoded = encodedType.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(MAGIC);
+                out.writeUTF(compilerVersion);
+                String path = canonicalPath(source.path());
+                out.writeUTF(path);
+                out.writeUTF(digest(path));
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            Files.move(tmp.toPath(),
+                       f.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+
+            if (Report.should_report(TOPIC, 2))
+                Report.report(2, "Stored signature for " + name + " in " + f);
+        }
+        catch (IOException e) {
+            if (Report.should_report(TOPIC, 1))
+                Report.report(1, "Unable to write " + f + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the signature of the class {@code name}, for example because it
+     * could not be decoded.
+     */
+    public void remove(String name) {
+        location(name).delete();
+    }
+
+    /**
+     * The canonical form of {@code path}, so that a source named by
+     * different relative paths, or through links, has one entry.  Falls
+     * back to the absolute path if the canonical one cannot be computed.
+     */
+    public static String canonicalPath(String path) {
+        File f = new File(path);
+        try {
+            return f.getCanonicalPath();
+        }
+        catch (IOException e) {
+            return f.getAbsolutePath();
+        }
+    }
+
+    /**
+     * A digest of the contents of the source file at {@code path}.  Sources
+     * are assumed not to change during a compilation, so the digest is
+     * computed once per path.
+     */
+    public String digest(String path) throws IOException {
+        String digest = digests.get(path);
+        if (digest != null) {
+            return digest;
+        }
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new InternalCompilerError(e);
+        }
+
+        try (InputStream in = new FileInputStream(path)) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                md.update(buf, 0, n);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        digest = sb.toString();
+        digests.put(path, digest);
+        return digest;
+    }
+
+    private static final String TOPIC = "sigcache";
+}
@@ -100,12 +100,18 @@ import polyglot.types.reflect.ClassFile;
  * Finally, if at any point an error occurs while reading jlc class type
  * information (e.g. if this information exists but is corrupted), then an error
  * is reported.
+ * <p>
+ * When only the files on the command line are compiled and a signature cache
+ * was given, a dependency whose source would otherwise be parsed is first
+ * looked for in the cache; its cached signature is used if the source has not
+ * changed since the signature was stored.
  */
 public class SourceClassResolver extends LoadedClassResolver {
     protected Compiler compiler;
     protected ExtensionInfo ext;
     protected boolean compileCommandLineOnly;
     protected boolean ignoreModTimes;
+    protected SignatureCache signatureCache;
 
     /**
      * Create a loaded class resolver.
@@ -130,6 +136,7 @@ public class SourceClassResolver extends LoadedClassResolver {
         this.ext = ext;
         this.compileCommandLineOnly = compileCommandLineOnly;
         this.ignoreModTimes = ignoreModTimes;
+        this.signatureCache = ext.signatureCache();
     }
 
     @Override
@@ -241,6 +248,21 @@ public class SourceClassResolver extends LoadedClassResolver {
         Named result = null;
         SemanticException se = null;
 
+        if (encodedClazz == null) {
+            if (source != null) {
+                result = getCachedType(source, name);
+            }
+            else if (clazz == null) {
+                // A member class has no source of its own; its signature is
+                // valid only if the source of its outer class is still on
+                // the source path.
+                FileSource outerSource = outerClassSource(name);
+                if (outerSource != null) {
+                    result = getCachedType(outerSource, name);
+                }
+            }
+        }
+
         if (encodedClazz != null) {
             if (Report.should_report(report_topics, 4))
                 Report.report(4, "Using encoded class type for " + name);
@@ -289,6 +311,73 @@ public class SourceClassResolver extends LoadedClassResolver {
         throw se == null ? new NoClassException(name) : se;
     }
 
+    /**
+     * Get a type from the signature cache, or return null if the cache has no
+     * usable signature for it.  Only dependencies that will not be compiled
+     * are taken from the cache, since compiling a source also produces its
+     * output files.
+     * @param source The source file that {@code name} was compiled from,
+     *          as found on the current source path.
+     */
+    protected Named getCachedType(FileSource source, String name) {
+        if (signatureCache == null || !compileCommandLineOnly) {
+            return null;
+        }
+
+        SignatureCache.Entry entry = signatureCache.lookup(name, source);
+        if (entry == null
+                || checkCompilerVersion(entry.compilerVersion()) != COMPATIBLE) {
+            return null;
+        }
+
+        String location = signatureCache.location(name).getPath();
+        try {
+            if (Report.should_report(report_topics, 4))
+                Report.report(4, "Using cached signature for " + name);
+            return getEncodedType(entry.encodedType(),
+                                  entry.compilerVersion(),
+                                  name,
+                                  location,
+                                  name);
+        }
+        catch (BadSerializationException e) {
+            signatureCache.remove(name);
+            return null;
+        }
+        catch (SemanticException e) {
+            if (Report.should_report(report_topics, 4))
+                Report.report(4, "Could not load cached signature for " + name);
+            return null;
+        }
+    }
+
+    /**
+     * Return the source file of the top-level class enclosing the member
+     * class {@code name}, given by its class file name, or null if
+     * {@code name} is not a member class or that source is not on the source
+     * path.
+     */
+    protected FileSource outerClassSource(String name) {
+        int dot = name.lastIndexOf('.');
+        int dollar = name.indexOf('$', dot + 1);
+        if (dollar <= dot + 1) {
+            return null;
+        }
+
+        String outerName = name.substring(0, dollar);
+        FileSource source = ext.sourceLoader().classSource(outerName);
+        if (source == null) {
+            return null;
+        }
+
+        String path = source.path();
+        int slash = path.lastIndexOf(File.separatorChar);
+        int suffix = path.lastIndexOf('.');
+        String fileName =
+                path.substring(slash + 1, suffix > slash ? suffix : path.length());
+        return fileName.equals(outerName.substring(dot + 1)) ? source : null;
+    }
+
     /**
      * Get a type from a source file.
      */
@@ -27,9 +27,12 @@
 package polyglot.types;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import polyglot.frontend.ExtensionInfo;
 import polyglot.main.Report;
@@ -41,7 +44,8 @@ import polyglot.util.TransformingList;
 
 /**
  * The {@code SystemResolver} is the main resolver for
- * fully-qualified names.
+ * fully-qualified names.  Like {@code CachingResolver}, it may be queried
+ * by several threads at once.
  */
 public class SystemResolver extends CachingResolver implements TopLevelResolver {
     protected Map<String, Boolean> packageCache;
@@ -49,6 +53,18 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
     protected SystemResolver previous;
     protected Collection<Pair<String, Named>> justAdded;
 
+    /**
+     * The full names of the packages of the types installed in the cache,
+     * closed under prefixes: if "a.b.c" is present, so are "a.b" and "a".
+     */
+    protected Set<String> cachedPackageNames;
+
+    /**
+     * Installed types that had no package when they were installed; their
+     * packages are indexed when they are next looked for.
+     */
+    protected Collection<Importable> unindexed;
+
     /**
      * Create a caching resolver.
      * @param inner The resolver whose results this resolver caches.
@@ -56,9 +72,12 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
     public SystemResolver(TopLevelResolver inner, ExtensionInfo extInfo) {
         super(inner);
         this.extInfo = extInfo;
-        this.packageCache = new HashMap<>();
+        this.packageCache = new ConcurrentHashMap<>();
         this.previous = null;
-        this.justAdded = new LinkedList<>();
+        this.justAdded = new ConcurrentLinkedQueue<>();
+        this.cachedPackageNames =
+                Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        this.unindexed = new ConcurrentLinkedQueue<>();
     }
 
     public SystemResolver previous() {
@@ -68,9 +87,13 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
     @Override
     public SystemResolver copy() {
         SystemResolver r = (SystemResolver) super.copy();
-        r.packageCache = new HashMap<>(this.packageCache);
+        r.packageCache = new ConcurrentHashMap<>(this.packageCache);
         r.previous = this;
-        r.justAdded = new LinkedList<>();
+        r.justAdded = new ConcurrentLinkedQueue<>();
+        r.cachedPackageNames =
+                Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        r.cachedPackageNames.addAll(this.cachedPackageNames);
+        r.unindexed = new ConcurrentLinkedQueue<>(this.unindexed);
         return r;
     }
 
@@ -93,24 +116,35 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
 
     /** Check if a package exists in the resolver cache. */
     protected boolean packageExistsInCache(String name) {
-        for (CachedResult cr : cachedResults()) {
-            if (!(cr instanceof CachedResult.Success)) continue;
-
-            Named named = ((CachedResult.Success) cr).named;
-            if (named instanceof Importable) {
-                Importable im = (Importable) named;
-                if (im.package_() != null
-                        && im.package_().fullName() != null
-                        && (im.package_().fullName().equals(name) || im.package_()
-                                                                       .fullName()
-                                                                       .startsWith(name
-                                                                               + "."))) {
-                    return true;
-                }
+        if (cachedPackageNames.contains(name)) {
+            return true;
+        }
+
+        for (Iterator<Importable> i = unindexed.iterator(); i.hasNext();) {
+            Importable im = i.next();
+            if (indexPackage(im.package_())) {
+                i.remove();
             }
         }
 
-        return false;
+        return cachedPackageNames.contains(name);
+    }
+
+    /**
+     * Record the package of an installed type, and all its prefixes, in
+     * {@code cachedPackageNames}.
+     * Returns false if there is no package to record yet.
+     */
+    protected boolean indexPackage(Package p) {
+        if (p == null || p.fullName() == null) {
+            return false;
+        }
+
+        String name = p.fullName();
+        while (!name.equals("") && cachedPackageNames.add(name)) {
+            name = StringUtil.getPackageComponent(name);
+        }
+        return true;
     }
 
     /**
@@ -179,7 +213,7 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
     }
 
     public void clearAdded() {
-        justAdded = new LinkedList<>();
+        justAdded = new ConcurrentLinkedQueue<>();
     }
 
     /**
@@ -199,6 +233,25 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
         }
     }
 
+    /**
+     * Install type objects found by another resolver, such as the system
+     * resolver of an earlier compilation, keyed by the names to install them
+     * under.  Packages are only recorded as existing, not installed: a
+     * class loaded from a class file does not install its package either,
+     * and an installed package would be taken for a duplicate of a source
+     * class of the same name.
+     */
+    public void installAll(Map<String, Named> named) {
+        for (Map.Entry<String, Named> e : named.entrySet()) {
+            if (e.getValue() instanceof Package) {
+                cachePackage((Package) e.getValue());
+            }
+            else {
+                install(e.getKey(), e.getValue());
+            }
+        }
+    }
+
     /**
      * Find a type (or package) by name. For most code, this should be called
      * with the Java source name (p.A.B), not the class file name (p.A$B). The
@@ -250,6 +303,13 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
 
         super.install(name, q);
 
+        if (q instanceof Importable) {
+            Importable im = (Importable) q;
+            if (!indexPackage(im.package_())) {
+                unindexed.add(im);
+            }
+        }
+
         if (previous == null) {
             if (q instanceof ParsedTypeObject) {
                 if (!((ParsedTypeObject) q).initializer()
@@ -218,6 +218,18 @@ public interface TypeSystem {
      */
     boolean descendsFrom(Type child, Type ancestor);
 
+    /**
+     * Notify the type system that the supertypes of {@code ct} have
+     * changed, discarding any cached subtyping information about it.
+     */
+    void supertypesChanged(ParsedClassType ct);
+
+    /**
+     * Notify the type system that the members or flags of {@code ct} have
+     * changed, discarding any cached member lookups.
+     */
+    void membersChanged(ParsedClassType ct);
+
     /**
      * Requires: all type arguments are canonical, and toType is not a NullType.
      *
@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -63,6 +64,8 @@ public class TypeSystem_c implements TypeSystem {
     protected TopLevelResolver loadedResolver;
     protected Map<String, Flags> flagsForName;
     protected ExtensionInfo extInfo;
+    protected AncestorCache ancestorCache;
+    protected LookupCache lookupCache;
 
     public TypeSystem_c() {
     }
@@ -87,11 +90,26 @@ public class TypeSystem_c implements TypeSystem {
         // import table and then in the system resolver.
         systemResolver = new SystemResolver(loadedResolver, extInfo);
 
+        ancestorCache = createAncestorCache();
+        lookupCache = createLookupCache();
+
+        // The type system may be initialized again to run another
+        // compilation; drop the array types made for the previous one.
+        arrayTypeCache.clear();
+
         initEnums();
         initFlags();
         initTypes();
     }
 
+    protected AncestorCache createAncestorCache() {
+        return new AncestorCache(this);
+    }
+
+    protected LookupCache createLookupCache() {
+        return new LookupCache();
+    }
+
     protected void initEnums() {
         // Ensure the enums in the type system are initialized and interned
         // before any deserialization occurs.
@@ -385,9 +403,118 @@ public class TypeSystem_c implements TypeSystem {
     public boolean descendsFrom(Type child, Type ancestor) {
         assert_(child);
         assert_(ancestor);
+
+        if (child instanceof ParsedClassType
+                && ancestor instanceof ParsedClassType
+                && isAncestorCacheable((ParsedClassType) ancestor)) {
+            Boolean b =
+                    ancestorCache.descendsFrom((ParsedClassType) child,
+                                               (ParsedClassType) ancestor);
+            if (b != null) return b;
+        }
+
         return child.descendsFromImpl(ancestor);
     }
 
+    /**
+     * Return true if whether a class descends from {@code ancestor} is
+     * determined by the class declarations in its hierarchy alone, so that
+     * the ancestor cache can answer it.
+     */
+    protected boolean isAncestorCacheable(ParsedClassType ancestor) {
+        return true;
+    }
+
+    /**
+     * Return the class declaration of the supertype {@code t} for the
+     * purpose of the ancestor cache, or null if {@code t} does not
+     * correspond to a declaration.
+     */
+    protected ParsedClassType ancestorDeclaration(Type t) {
+        if (t instanceof ParsedClassType) {
+            return (ParsedClassType) t;
+        }
+        return null;
+    }
+
+    @Override
+    public void supertypesChanged(ParsedClassType ct) {
+        if (ancestorCache != null) {
+            ancestorCache.invalidate(ct);
+        }
+        if (lookupCache != null) {
+            lookupCache.invalidate(ct);
+        }
+    }
+
+    @Override
+    public void membersChanged(ParsedClassType ct) {
+        if (lookupCache != null) {
+            lookupCache.invalidate(ct);
+        }
+    }
+
+    /**
+     * Return the result cached for {@code key} by a previous member lookup,
+     * or null if there is none.
+     */
+    protected Object cachedLookup(LookupCache.Key key) {
+        return lookupCache == null ? null : lookupCache.get(key);
+    }
+
+    /** Cache {@code result} as the result of the member lookup {@code key}. */
+    protected void cacheLookup(LookupCache.Key key, Object result) {
+        if (lookupCache != null) {
+            lookupCache.put(key, result, lookupDependencies(key));
+        }
+    }
+
+    /**
+     * Return the classes whose members, flags or supertypes the result of
+     * the member lookup {@code key} depends on, or null if they cannot be
+     * determined.  These are the classes that the types in the key descend
+     * from.
+     */
+    protected Set<ParsedClassType> lookupDependencies(LookupCache.Key key) {
+        if (ancestorCache == null) {
+            return null;
+        }
+        Set<ParsedClassType> dependencies =
+                Collections.newSetFromMap(new IdentityHashMap<ParsedClassType, Boolean>());
+        for (Object o : key.parts()) {
+            if (o instanceof Type
+                    && !addLookupDependencies(dependencies, (Type) o)) {
+                return null;
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * Add to {@code dependencies} the classes whose members, flags or
+     * supertypes a member lookup involving {@code t} depends on.
+     * @return false if they cannot be determined.
+     */
+    protected boolean addLookupDependencies(
+            Set<ParsedClassType> dependencies, Type t) {
+        if (t.isArray()) {
+            return addLookupDependencies(dependencies, t.toArray().base());
+        }
+        if (t.isNull() || !t.isReference()) {
+            return true;
+        }
+        ParsedClassType decl = ancestorDeclaration(t);
+        if (decl == null) {
+            return false;
+        }
+        Set<ParsedClassType> ancestors = ancestorCache.ancestors(decl);
+        if (ancestors == null) {
+            return false;
+        }
+        dependencies.addAll(ancestors);
+        return true;
+    }
+
     @Override
     public boolean isCastValid(Type fromType, Type toType) {
         assert_(fromType);
@@ -1021,6 +1148,12 @@ public class TypeSystem_c implements TypeSystem {
                     + "\" within a null container type.");
         }
 
+        LookupCache.Key key =
+                LookupCache.key("hasMethodNamed", name, container, currClass);
+        if (cachedLookup(key) != null) {
+            return true;
+        }
+
         Set<Type> visitedTypes = new HashSet<>();
 
         LinkedList<Type> typeQueue = new LinkedList<>();
@@ -1042,6 +1175,7 @@ public class TypeSystem_c implements TypeSystem {
             for (MethodInstance mi : type.toReference().methodsNamed(name)) {
                 if (isMember(mi, container.toReference())
                         && isAccessible(mi, container, currClass)) {
+                    cacheLookup(key, Boolean.TRUE);
                     return true;
                 }
             }
@@ -1070,6 +1204,17 @@ public class TypeSystem_c implements TypeSystem {
         assert_(container);
         assert_(argTypes);
 
+        LookupCache.Key key = LookupCache.key("method",
+                                              name,
+                                              container,
+                                              argTypes,
+                                              currClass,
+                                              fromClient);
+        MethodInstance cached = (MethodInstance) cachedLookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
         List<? extends MethodInstance> acceptable =
                 findAcceptableMethods(container,
                                       name,
@@ -1113,6 +1258,7 @@ public class TypeSystem_c implements TypeSystem {
         }
 
         MethodInstance mi = maximal.iterator().next();
+        cacheLookup(key, mi);
         return mi;
     }
 
@@ -1141,6 +1287,17 @@ public class TypeSystem_c implements TypeSystem {
         assert_(container);
         assert_(argTypes);
 
+        LookupCache.Key key = LookupCache.key("constructor",
+                                              null,
+                                              container,
+                                              argTypes,
+                                              currClass,
+                                              fromClient);
+        ConstructorInstance cached = (ConstructorInstance) cachedLookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
         List<? extends ConstructorInstance> acceptable =
                 findAcceptableConstructors(container,
                                            argTypes,
@@ -1167,6 +1324,7 @@ public class TypeSystem_c implements TypeSystem {
         }
 
         ConstructorInstance ci = maximal.iterator().next();
+        cacheLookup(key, ci);
         return ci;
     }
 
@@ -1740,7 +1898,11 @@ public class TypeSystem_c implements TypeSystem {
         return DOUBLE_;
     }
 
-    protected ClassType load(String name) {
+    /**
+     * Load the class {@code name}.  This is synchronized because job-local
+     * passes run in parallel by the scheduler may load well-known classes.
+     */
+    protected synchronized ClassType load(String name) {
         try {
             return (ClassType) typeForName(name);
         }
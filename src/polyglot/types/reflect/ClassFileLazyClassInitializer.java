@@ -26,6 +26,7 @@
 
 package polyglot.types.reflect;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -37,6 +38,7 @@ import polyglot.types.ConstructorInstance;
 import polyglot.types.FieldInstance;
 import polyglot.types.Flags;
 import polyglot.types.LazyClassInitializer;
+import polyglot.types.MemberNameIndex;
 import polyglot.types.MethodInstance;
 import polyglot.types.ParsedClassType;
 import polyglot.types.SemanticException;
@@ -61,6 +63,7 @@ import polyglot.util.StringUtil;
  */
 public class ClassFileLazyClassInitializer implements LazyClassInitializer {
     protected ClassFile clazz;
+    protected URI uri;
     protected TypeSystem ts;
     protected ParsedClassType ct;
 
@@ -80,9 +83,18 @@ public class ClassFileLazyClassInitializer implements LazyClassInitializer {
 
     public ClassFileLazyClassInitializer(ClassFile file, TypeSystem ts) {
         this.clazz = file;
+        this.uri = file.getClassFileURI();
         this.ts = ts;
     }
 
+    /**
+     * The location of the class file the type is initialized from. The class
+     * file itself is dropped once the type is initialized.
+     */
+    public URI classFileURI() {
+        return uri;
+    }
+
     @Override
     public void setClass(ParsedClassType ct) {
         this.ct = ct;
@@ -504,12 +516,19 @@ public class ClassFileLazyClassInitializer implements LazyClassInitializer {
                     ts.Object().methods();
             List<MethodInstance> implicitlyDeclaredMethods =
                     new ArrayList<>(objectMethods.size());
+            MemberNameIndex<MethodInstance> declared =
+                    new MemberNameIndex<MethodInstance>() {
+                        @Override
+                        protected String name(MethodInstance mi) {
+                            return mi.name();
+                        }
+                    };
             for (MethodInstance mi : objectMethods) {
                 Flags flags = mi.flags();
                 if (!flags.isPublic()) continue;
                 boolean methodNeeded = true;
-                for (MethodInstance mj : declaredMethods) {
-                    if (!mi.name().equals(mj.name())) continue;
+                for (MethodInstance mj : declared.named(declaredMethods,
+                                                        mi.name())) {
                     if (!mi.formalTypes().equals(mj.formalTypes())) continue;
                     methodNeeded = false;
                     break;
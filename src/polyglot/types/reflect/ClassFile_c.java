@@ -40,6 +40,8 @@ import javax.tools.FileObject;
 
 import polyglot.frontend.ExtensionInfo;
 import polyglot.types.SemanticException;
+import polyglot.util.InternalCompilerError;
+import polyglot.util.TypeEncoder;
 
 /**
  * ClassFile represents a Java classfile as it is found on disk. The classfile
@@ -59,8 +61,15 @@ public class ClassFile_c implements ClassFile {
     protected int thisClass;
     protected int superClass;
     protected int[] interfaces;
+    /** The fields, or null if they have not yet been read. */
     protected Field[] fields;
+    /** The methods, or null if they have not yet been read. */
     protected Method[] methods;
+    /** The class file contents. */
+    protected byte[] code;
+    /** Offsets in {@code code} of the field and method tables. */
+    protected int fieldsOffset;
+    protected int methodsOffset;
     protected Attribute[] attrs;
     protected InnerClasses innerClasses;
     protected FileObject classFileSource;
@@ -75,7 +84,8 @@ public class ClassFile_c implements ClassFile {
     }
 
     /**
-     * Constructor. This constructor parses the class file from the byte array
+     * Constructor. This constructor parses the class file from the byte array.
+     * Fields and methods are located but not read until requested.
      * 
      * @param code
      *            A byte array containing the class data
@@ -85,6 +95,7 @@ public class ClassFile_c implements ClassFile {
             ExtensionInfo ext) throws IOException {
         this.classFileSource = classFileSource;
         this.extensionInfo = ext;
+        this.code = code;
 
         try (ByteArrayInputStream bin = new ByteArrayInputStream(code);
              DataInputStream in = new DataInputStream(bin)) {
@@ -116,41 +127,47 @@ public class ClassFile_c implements ClassFile {
         try {
             int mask = 0;
 
+            // The encoded class type may be split over several fields:
+            // jlc$BinaryClassType$<key>, then jlc$BinaryClassType$<key>$1,
+            // and so on.  Class files written before the binary format hold
+            // it in jlc$ClassType$<key> fields instead.
+            Map<Integer, String> binaryFragments = new HashMap<>();
+            Map<Integer, String> legacyFragments = new HashMap<>();
+
+            Field[] fields = getFields();
             for (Field field : fields) {
-                if (field.name().equals("jlc$SourceLastModified$"
-                        + typeSystemKey)) {
+                String name = field.name();
+                if (!name.startsWith("jlc$")) {
+                    continue;
+                }
+                if (name.equals("jlc$SourceLastModified$" + typeSystemKey)) {
                     jlc.sourceLastModified = field.getLong();
                     mask |= 1;
                 }
-                else if (field.name().equals("jlc$CompilerVersion$"
-                        + typeSystemKey)) {
+                else if (name.equals("jlc$CompilerVersion$" + typeSystemKey)) {
                     jlc.compilerVersion = field.getString();
                     mask |= 2;
                 }
-                else if (field.name().equals("jlc$ClassType$" + typeSystemKey)) {
-                    // there is encoded class type information.
-                    StringBuffer encodedClassTypeInfo =
-                            new StringBuffer(field.getString());
-                    // check to see if there are more fields.
-                    int seeking = 1;
-                    boolean found;
-                    do {
-                        found = false;
-                        String suffix = ("$" + seeking);
-                        String seekingFieldName =
-                                "jlc$ClassType$" + typeSystemKey + suffix;
-                        for (Field field2 : fields) {
-                            if (field2.name().equals(seekingFieldName)) {
-                                encodedClassTypeInfo.append(field2.getString());
-                                found = true;
-                                seeking++;
-                                break;
-                            }
-                        }
-                    } while (found);
-                    jlc.encodedClassType = encodedClassTypeInfo.toString();
-                    mask |= 4;
+                else if (!addFragment(binaryFragments,
+                                      TypeEncoder.BINARY_FIELD_PREFIX
+                                              + typeSystemKey,
+                                      field)) {
+                    addFragment(legacyFragments,
+                                TypeEncoder.LEGACY_FIELD_PREFIX + typeSystemKey,
+                                field);
+                }
+            }
+
+            Map<Integer, String> fragments =
+                    binaryFragments.containsKey(0)
+                            ? binaryFragments : legacyFragments;
+            if (fragments.containsKey(0)) {
+                StringBuilder encodedClassTypeInfo = new StringBuilder();
+                for (int n = 0; fragments.containsKey(n); n++) {
+                    encodedClassTypeInfo.append(fragments.get(n));
                 }
+                jlc.encodedClassType = encodedClassTypeInfo.toString();
+                mask |= 4;
             }
 
             if (mask != 7) {
@@ -169,6 +186,34 @@ public class ClassFile_c implements ClassFile {
         return jlc;
     }
 
+    /**
+     * If {@code field} is the field {@code classTypeName} or its fragment
+     * {@code classTypeName$n}, record its value as fragment 0 or {@code n}.
+     * @return true if the field is a fragment of the class type.
+     */
+    protected static boolean addFragment(Map<Integer, String> fragments,
+            String classTypeName, Field field) throws SemanticException {
+        String name = field.name();
+        if (name.equals(classTypeName)) {
+            fragments.put(0, field.getString());
+            return true;
+        }
+        if (name.startsWith(classTypeName + "$")) {
+            try {
+                int n =
+                        Integer.parseInt(name.substring(classTypeName.length() + 1));
+                if (n > 0) {
+                    fragments.put(n, field.getString());
+                    return true;
+                }
+            }
+            catch (NumberFormatException e) {
+                // Not a fragment of the class type.
+            }
+        }
+        return false;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -204,7 +249,7 @@ public class ClassFile_c implements ClassFile {
     }
 
     /**
-     * Read the class file.
+     * Read the class file, skipping over the fields and methods.
      */
     void read(DataInputStream in) throws IOException {
         // Read in file contents from stream
@@ -212,11 +257,53 @@ public class ClassFile_c implements ClassFile {
         readConstantPool(in);
         readAccessFlags(in);
         readClassInfo(in);
-        readFields(in);
-        readMethods(in);
+        fieldsOffset = position(in);
+        skipMembers(in);
+        methodsOffset = position(in);
+        skipMembers(in);
         readAttributes(in);
     }
 
+    /**
+     * Return the offset in {@code code} of the next byte of {@code in}, a
+     * stream over {@code code}.
+     */
+    int position(DataInputStream in) throws IOException {
+        return code.length - in.available();
+    }
+
+    /**
+     * Return a stream over {@code code}, starting at {@code offset}.
+     */
+    DataInputStream streamAt(int offset) {
+        return new DataInputStream(new ByteArrayInputStream(code,
+                                                            offset,
+                                                            code.length
+                                                                    - offset));
+    }
+
+    /**
+     * Skip over a field or method table.
+     */
+    void skipMembers(DataInputStream in) throws IOException {
+        int numMembers = in.readUnsignedShort();
+        for (int i = 0; i < numMembers; i++) {
+            // Skip the access flags, name and descriptor.
+            skip(in, 6);
+            int numAttributes = in.readUnsignedShort();
+            for (int j = 0; j < numAttributes; j++) {
+                skip(in, 2);
+                skip(in, in.readInt());
+            }
+        }
+    }
+
+    void skip(DataInputStream in, int length) throws IOException {
+        if (length < 0 || in.skip(length) != length) {
+            throw new EOFException();
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -311,8 +398,11 @@ public class ClassFile_c implements ClassFile {
             value = new Double(in.readDouble());
             break;
         case Constant.UTF8:
-            value = in.readUTF();
-            break;
+            // Decoded on demand.
+            int length = in.readUnsignedShort();
+            int offset = position(in);
+            skip(in, length);
+            return new Constant(code, offset, length);
         default:
             throw new ClassFormatError("Invalid constant tag: " + tag);
         }
@@ -543,7 +633,16 @@ public class ClassFile_c implements ClassFile {
      * @see polyglot.types.reflect.ClassFileI#getFields()
      */
     @Override
-    public Field[] getFields() {
+    public synchronized Field[] getFields() {
+        if (fields == null) {
+            try (DataInputStream in = streamAt(fieldsOffset)) {
+                readFields(in);
+            }
+            catch (IOException e) {
+                throw new InternalCompilerError("Error reading fields of "
+                        + name(), e);
+            }
+        }
         return fields;
     }
 
@@ -573,7 +672,16 @@ public class ClassFile_c implements ClassFile {
      * @see polyglot.types.reflect.ClassFileI#getMethods()
      */
     @Override
-    public Method[] getMethods() {
+    public synchronized Method[] getMethods() {
+        if (methods == null) {
+            try (DataInputStream in = streamAt(methodsOffset)) {
+                readMethods(in);
+            }
+            catch (IOException e) {
+                throw new InternalCompilerError("Error reading methods of "
+                        + name(), e);
+            }
+        }
         return methods;
     }
 
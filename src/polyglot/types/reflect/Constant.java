@@ -26,6 +26,11 @@
 
 package polyglot.types.reflect;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
 /**
  * A Constant is used to represent an item in the constant pool of a class.
  *
@@ -36,6 +41,17 @@ public class Constant {
     protected int tag;
     protected Object value;
 
+    /**
+     * For a UTF8 constant whose value has not yet been decoded, the class
+     * file containing it; otherwise null.
+     */
+    protected final byte[] code;
+    /** Offset and length in {@code code} of the encoded string. */
+    protected final int offset;
+    protected final int length;
+
+    protected static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
     /**
      * Constant tag for class types.
      * This is used to reference other classes, such as the superclass,
@@ -133,6 +149,28 @@ public class Constant {
     Constant(final int tag, final Object value) {
         this.tag = tag;
         this.value = value;
+        this.code = null;
+        this.offset = 0;
+        this.length = 0;
+    }
+
+    /**
+     * Create a UTF8 constant whose value is decoded from {@code code} when
+     * first requested.
+     *
+     * @param code
+     *        The class file.
+     * @param offset
+     *        The offset of the string bytes, after their length.
+     * @param length
+     *        The number of string bytes.
+     */
+    Constant(byte[] code, int offset, int length) {
+        this.tag = UTF8;
+        this.value = null;
+        this.code = code;
+        this.offset = offset;
+        this.length = length;
     }
 
     /**
@@ -152,7 +190,42 @@ public class Constant {
      *        The value.
      */
     public final Object value() {
-        return value;
+        Object v = value;
+        if (v == null && code != null) {
+            // Strings are immutable, so a racing decode is harmless.
+            v = decode();
+            value = v;
+        }
+        return v;
+    }
+
+    /**
+     * Decode the modified UTF-8 string at {@code offset} in {@code code}.
+     */
+    protected String decode() {
+        int end = offset + length;
+        boolean ascii = true;
+        for (int i = offset; i < end; i++) {
+            if (code[i] <= 0) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) {
+            return new String(code, offset, length, ISO_8859_1);
+        }
+
+        // Let DataInputStream read the string, including its length.
+        try (DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(code,
+                                                             offset - 2,
+                                                             length + 2))) {
+            return in.readUTF();
+        }
+        catch (IOException e) {
+            throw new ClassFormatError("Invalid UTF8 constant: "
+                    + e.getMessage());
+        }
     }
 
     /**
@@ -172,7 +245,7 @@ public class Constant {
         case DOUBLE:
         case UTF8:
         case METHOD_TYPE:
-            return tag ^ value.hashCode();
+            return tag ^ value().hashCode();
         case FIELD_REF:
         case METHOD_REF:
         case INTERFACE_METHOD_REF:
@@ -214,7 +287,7 @@ public class Constant {
         case DOUBLE:
         case UTF8:
         case METHOD_TYPE:
-            return value.equals(c.value);
+            return value().equals(c.value());
         case FIELD_REF:
         case METHOD_REF:
         case INTERFACE_METHOD_REF:
@@ -26,38 +26,159 @@
 
 package polyglot.util;
 
-/** A bit vector class implemented more naively than java.util.BitSet. */
+import java.util.Arrays;
+
+/**
+ * A growable bit vector packed into an array of {@code long} words.
+ * Bitwise operations work a word at a time, so dataflow analyses can
+ * join and compare sets of variables without allocating per element.
+ * Bits beyond the current capacity read as false.
+ */
 public class BitVector {
-    private int size;
-    private boolean[] bits;
+    private static final int WORD_SHIFT = 6;
+
+    private long[] words;
 
     public BitVector() {
-        this(32);
+        this(64);
     }
 
     public BitVector(int initialSize) {
-        size = initialSize;
-        bits = new boolean[size];
+        words = new long[wordsFor(initialSize)];
     }
 
-    public final void setBit(int which, boolean value) {
-        if (which >= size) {
-            size += 32;
-            boolean[] newBits = new boolean[size];
-            for (int i = 0; i < bits.length; i++)
-                newBits[i] = bits[i];
-            bits = newBits;
+    /** Create a copy of {@code bv}. */
+    public BitVector(BitVector bv) {
+        words = bv.words.clone();
+    }
+
+    private static int wordsFor(int bits) {
+        return Math.max(1, (bits + 63) >>> WORD_SHIFT);
+    }
+
+    private void ensureWords(int n) {
+        if (n > words.length) {
+            words = Arrays.copyOf(words, Math.max(n, 2 * words.length));
         }
+    }
 
-        bits[which] = value;
+    public final void setBit(int which, boolean value) {
+        int w = which >>> WORD_SHIFT;
+        if (value) {
+            ensureWords(w + 1);
+            words[w] |= 1L << which;
+        }
+        else if (w < words.length) {
+            words[w] &= ~(1L << which);
+        }
     }
 
     public final boolean getBit(int which) {
-        if (which >= size) {
-            return false;
+        int w = which >>> WORD_SHIFT;
+        return w < words.length && (words[w] & 1L << which) != 0;
+    }
+
+    /** Set this vector to the union of itself and {@code bv}. */
+    public final void or(BitVector bv) {
+        ensureWords(bv.words.length);
+        for (int i = 0; i < bv.words.length; i++)
+            words[i] |= bv.words[i];
+    }
+
+    /** Set this vector to the intersection of itself and {@code bv}. */
+    public final void and(BitVector bv) {
+        int n = Math.min(words.length, bv.words.length);
+        for (int i = 0; i < n; i++)
+            words[i] &= bv.words[i];
+        for (int i = n; i < words.length; i++)
+            words[i] = 0;
+    }
+
+    /** Clear every bit of this vector that is set in {@code bv}. */
+    public final void andNot(BitVector bv) {
+        int n = Math.min(words.length, bv.words.length);
+        for (int i = 0; i < n; i++)
+            words[i] &= ~bv.words[i];
+    }
+
+    /** Set every bit of this vector below {@code size} to {@code value}. */
+    public final void fill(int size, boolean value) {
+        int n = size >>> WORD_SHIFT;
+        if (value) {
+            ensureWords(wordsFor(size));
+            Arrays.fill(words, 0, n, -1L);
+            if ((size & 63) != 0) words[n] |= (1L << size) - 1;
         }
         else {
-            return bits[which];
+            Arrays.fill(words, 0, Math.min(n, words.length), 0L);
+            if ((size & 63) != 0 && n < words.length)
+                words[n] &= -1L << size;
+        }
+    }
+
+    /**
+     * Return the index of the first set bit at or after {@code from}, or -1
+     * if there is none.
+     */
+    public final int nextSetBit(int from) {
+        int w = from >>> WORD_SHIFT;
+        if (w >= words.length) return -1;
+        long word = words[w] & -1L << from;
+        while (true) {
+            if (word != 0)
+                return (w << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+            if (++w == words.length) return -1;
+            word = words[w];
+        }
+    }
+
+    /** Return the number of set bits. */
+    public final int cardinality() {
+        int count = 0;
+        for (long word : words)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    public final boolean isEmpty() {
+        for (long word : words)
+            if (word != 0) return false;
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof BitVector)) return false;
+        long[] a = words;
+        long[] b = ((BitVector) o).words;
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++)
+            if (a[i] != b[i]) return false;
+        for (int i = n; i < a.length; i++)
+            if (a[i] != 0) return false;
+        for (int i = n; i < b.length; i++)
+            if (b[i] != 0) return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // Trailing zero words do not contribute, so that equal vectors of
+        // different capacities hash alike.
+        long h = 1234;
+        for (int i = words.length; --i >= 0;)
+            h ^= words[i] * (i + 1);
+        return (int) (h >> 32 ^ h);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(i);
         }
+        return sb.append('}').toString();
     }
 }
@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * StreamingCodeWriter is a CodeWriter that formats its input as it arrives,
+ * in the manner of Oppen's pretty-printer.  It never holds more than about a
+ * line of input, so its memory use and running time are linear in the size
+ * of the output, however large.  The layout is usually close to that of
+ * OptimalCodeWriter, though not always as compact.
+ * <p>
+ * A block is printed on the rest of the current line if it fits there and
+ * contains no forced newline.  Otherwise the block is broken: each unified
+ * break in it is broken, and each other break in it is broken only if the
+ * text following it does not fit on the current line.  That text ends at
+ * the next break that could be broken instead, so that breaks of higher
+ * levels tend to stay unbroken.  Level-0 breaks are always broken.
+ */
+public class StreamingCodeWriter extends CodeWriter {
+    /** The size of text that cannot fit on any line. */
+    protected static final int INFINITY = 0xffffff;
+
+    /**
+     * A unit of input.  The size of a block is the width of its contents
+     * printed on one line.  The size of a break is the width of its
+     * alternative and of the text following it, up to the next break that
+     * could be broken instead of it, or the end of its block.  Sizes are
+     * negative until known.
+     */
+    protected static final class Token {
+        static final int TEXT = 0;
+        static final int BEGIN = 1;
+        static final int END = 2;
+        static final int BREAK = 3;
+
+        final int kind;
+        final String text;
+        final int length;
+        final int indent;
+        final int level;
+        final boolean unified;
+        final boolean forced;
+        int size;
+        /** Whether the block of this break has ended. */
+        boolean ended;
+
+        Token(int kind, String text, int length, int indent, int level,
+                boolean unified, boolean forced) {
+            this.kind = kind;
+            this.text = text;
+            this.length = length;
+            this.indent = indent;
+            this.level = level;
+            this.unified = unified;
+            this.forced = forced;
+        }
+
+        /** The width of the token when printed on one line. */
+        int width() {
+            if (forced) return INFINITY;
+            return length;
+        }
+    }
+
+    /** A block being printed. */
+    protected static final class Frame {
+        final int lmargin;
+        final boolean broken;
+
+        Frame(int lmargin, boolean broken) {
+            this.lmargin = lmargin;
+            this.broken = broken;
+        }
+    }
+
+    protected PrintWriter output;
+    protected int width;
+
+    /** The column at which the next character will be printed. */
+    protected int pos;
+
+    /** Whether some line since the last flush was wider than {@code width}. */
+    protected boolean overflowed;
+
+    /** Tokens received but not yet printed. */
+    protected Deque<Token> buffer;
+
+    /**
+     * Tokens in {@code buffer} whose sizes are not yet known, innermost
+     * first.
+     */
+    protected Deque<Token> scanStack;
+
+    /** The blocks being printed, innermost first. */
+    protected Deque<Frame> frames;
+
+    /** Total width of the tokens printed and received since the last reset. */
+    protected int leftTotal;
+    protected int rightTotal;
+
+    /** The number of blocks begun but not yet ended. */
+    protected int depth;
+
+    public StreamingCodeWriter(OutputStream o, int width_) {
+        this(new PrintWriter(new OutputStreamWriter(o)), width_);
+    }
+
+    public StreamingCodeWriter(PrintWriter o, int width_) {
+        output = o;
+        width = width_;
+        buffer = new ArrayDeque<>();
+        scanStack = new ArrayDeque<>();
+        frames = new ArrayDeque<>();
+        reset();
+    }
+
+    public StreamingCodeWriter(Writer o, int width_) {
+        this(new PrintWriter(o), width_);
+    }
+
+    protected void reset() {
+        buffer.clear();
+        scanStack.clear();
+        frames.clear();
+        frames.push(new Frame(0, true));
+        pos = 0;
+        overflowed = false;
+        leftTotal = rightTotal = 1;
+        depth = 0;
+    }
+
+    @Override
+    public void write(String s) {
+        if (s.length() > 0) write(s, s.length());
+    }
+
+    @Override
+    public void write(String s, int length) {
+        Token t = new Token(Token.TEXT, s, length, 0, 0, false, false);
+        if (scanStack.isEmpty() && buffer.isEmpty()) {
+            print(t);
+        }
+        else {
+            t.size = length;
+            buffer.addLast(t);
+            rightTotal += length;
+            checkStream();
+        }
+    }
+
+    @Override
+    public void begin(int n) {
+        depth++;
+        if (scanStack.isEmpty()) {
+            leftTotal = rightTotal = 1;
+        }
+        Token t = new Token(Token.BEGIN, null, 0, n, 0, false, false);
+        t.size = -rightTotal;
+        buffer.addLast(t);
+        scanStack.push(t);
+    }
+
+    @Override
+    public void end() {
+        if (depth == 0) throw new InternalCompilerError("Mismatched blocks");
+        depth--;
+        Token t = new Token(Token.END, null, 0, 0, 0, false, false);
+        if (scanStack.isEmpty() && buffer.isEmpty()) {
+            print(t);
+            return;
+        }
+        buffer.addLast(t);
+        // The block ends here, but the text following its pending breaks
+        // goes on to the next break.
+        Deque<Token> pending = new ArrayDeque<>();
+        while (!scanStack.isEmpty()) {
+            Token x = scanStack.pop();
+            if (x.kind == Token.BEGIN) {
+                x.size += rightTotal;
+                break;
+            }
+            x.ended = true;
+            pending.push(x);
+        }
+        while (!pending.isEmpty()) {
+            scanStack.push(pending.pop());
+        }
+        if (scanStack.isEmpty()) {
+            advanceLeft();
+        }
+    }
+
+    @Override
+    public void allowBreak(int n, int level, String alt, int altlen) {
+        addBreak(n, level, alt, altlen, false, level == 0);
+    }
+
+    @Override
+    public void unifiedBreak(int n, int level, String alt, int altlen) {
+        addBreak(n, level, alt, altlen, true, level == 0);
+    }
+
+    @Override
+    public void newline(int n, int level) {
+        addBreak(n, level, "", 0, true, true);
+    }
+
+    protected void addBreak(int n, int level, String alt, int altlen,
+            boolean unified, boolean forced) {
+        if (scanStack.isEmpty()) {
+            leftTotal = rightTotal = 1;
+        }
+        // Following the "break from root" rule of OptimalCodeWriter, the
+        // text following a pending break ends at this break if this break
+        // could be broken while the pending one is not: if the pending
+        // break is in a block that has ended, in this block at the same or
+        // a higher level, or in an enclosing block at a higher level.  A
+        // newline forces the pending breaks it does not end to be broken.
+        boolean inner = true;
+        for (Iterator<Token> i = scanStack.iterator(); i.hasNext();) {
+            Token x = i.next();
+            if (x.kind == Token.BEGIN) {
+                inner = false;
+            }
+            else if (x.ended || (inner ? x.level >= level : x.level > level)) {
+                x.size += rightTotal;
+                i.remove();
+            }
+            else if (forced) {
+                x.size = INFINITY;
+                i.remove();
+            }
+        }
+        Token t =
+                new Token(Token.BREAK, alt, altlen, n, level, unified, forced);
+        t.size = -rightTotal;
+        buffer.addLast(t);
+        scanStack.push(t);
+        rightTotal += t.width();
+        checkStream();
+    }
+
+    /**
+     * While the buffered input is too wide for the rest of the line, the
+     * outermost block or break whose size is unknown cannot fit; print up
+     * to the next token whose size is unknown.
+     */
+    protected void checkStream() {
+        while (rightTotal - leftTotal > width - pos && !scanStack.isEmpty()) {
+            scanStack.removeLast().size = INFINITY;
+            advanceLeft();
+        }
+        advanceLeft();
+    }
+
+    /** Print buffered tokens whose sizes are known. */
+    protected void advanceLeft() {
+        while (!buffer.isEmpty() && buffer.peekFirst().size >= 0) {
+            Token t = buffer.removeFirst();
+            print(t);
+            if (t.kind == Token.TEXT || t.kind == Token.BREAK) {
+                leftTotal += t.width();
+            }
+        }
+    }
+
+    protected void print(Token t) {
+        switch (t.kind) {
+        case Token.TEXT:
+            output.print(t.text);
+            pos += t.length;
+            if (pos > width) overflowed = true;
+            break;
+        case Token.BEGIN:
+            frames.push(new Frame(pos + t.indent, t.size > width - pos));
+            break;
+        case Token.END:
+            frames.pop();
+            break;
+        case Token.BREAK:
+            Frame f = frames.peek();
+            if (t.forced || (t.unified ? f.broken : t.size > width - pos)) {
+                output.println();
+                pos = f.lmargin + t.indent;
+                for (int i = 0; i < pos; i++) {
+                    output.print(' ');
+                }
+            }
+            else {
+                output.print(t.text);
+                pos += t.length;
+                if (pos > width) overflowed = true;
+            }
+            break;
+        }
+    }
+
+    @Override
+    public boolean flush() throws IOException {
+        if (depth != 0) throw new InternalCompilerError("Mismatched blocks");
+        while (!scanStack.isEmpty()) {
+            scanStack.pop().size += rightTotal;
+        }
+        advanceLeft();
+        output.flush();
+        boolean success = !overflowed;
+        reset();
+        return success;
+    }
+
+    /**
+     * Output is formatted as it is written, so {@code format} has no effect.
+     */
+    @Override
+    public boolean flush(boolean format) throws IOException {
+        return flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        output.close();
+    }
+
+    /**
+     * toString is not really supported by this implementation.
+     */
+    @Override
+    public String toString() {
+        return "<StreamingCodeWriter>";
+    }
+}
@@ -55,9 +55,38 @@ import polyglot.types.TypeSystem;
  * {@code PlaceHolder} that contains the name of the class. To aid
  * in the decoding process, placeholders for member classes user their 
  * "mangled" name; non-member classes use their fully qualified name.
+ * <p>
+ * Types are encoded in a binary format: a version character followed by
+ * the bytes of a compact serialization, one character per byte.  Strings
+ * in the older format, a gzipped serialization encoded in Base64, can
+ * still be decoded.
+ * <p>
+ * Class files hold types in the binary format in fields named
+ * {@link #BINARY_FIELD_PREFIX}, which compilers that only read the older
+ * format ignore, rather than in the fields named
+ * {@link #LEGACY_FIELD_PREFIX}.  These compilers then report that the
+ * class must be recompiled.
  */
 public class TypeEncoder {
+    /**
+     * The prefix of the fields holding a class type in the older format.
+     */
+    public static final String LEGACY_FIELD_PREFIX = "jlc$ClassType$";
+
+    /**
+     * The prefix of the fields holding a class type in the binary format.
+     */
+    public static final String BINARY_FIELD_PREFIX = "jlc$BinaryClassType$";
+
+    /**
+     * The first character of a type in version 2 of the binary format, which
+     * records the serialVersionUID of each class.  Base64 strings never
+     * start with a control character.
+     */
+    protected static final char BINARY_V2 = '\u0002';
+
     protected TypeSystem ts;
+    protected final boolean binary = true;
     protected final boolean zip = true;
     protected final boolean base64 = true;
     protected final boolean test = false;
@@ -69,6 +98,14 @@ public class TypeEncoder {
         this.placeHolderCache = null;
     }
 
+    /**
+     * The prefix of the names of the fields holding class types encoded by
+     * this encoder.
+     */
+    public String fieldPrefix() {
+        return binary ? BINARY_FIELD_PREFIX : LEGACY_FIELD_PREFIX;
+    }
+
     /**
      * Serialize a type object into a string.
      * @return String containing the encoded type object.
@@ -82,6 +119,10 @@ public class TypeEncoder {
             Report.report(1, "Encoding type " + t);
         }
 
+        if (binary) {
+            return encodeBinary(t);
+        }
+
         baos = new ByteArrayOutputStream();
         try (GZIPOutputStream gzos = zip ? new GZIPOutputStream(baos) : null;
              ObjectOutputStream oos =
@@ -134,6 +175,33 @@ public class TypeEncoder {
         return s;
     }
 
+    /**
+     * Serialize a type object into a string in the binary format.
+     */
+    protected String encodeBinary(TypeObject t) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new TypeOutputStream(baos, ts, t, true)) {
+            oos.writeObject(t);
+        }
+
+        byte[] b = baos.toByteArray();
+
+        if (Report.should_report(Report.serialize, 2)) {
+            Report.report(2, "Size of binary serialization is " + b.length
+                    + " bytes");
+        }
+
+        // Offset each byte by one, since the class file encoding of a
+        // string takes two bytes for a zero character, but one byte for
+        // each character from 1 to 127.
+        char[] c = new char[b.length + 1];
+        c[0] = BINARY_V2;
+        for (int i = 0; i < b.length; i++) {
+            c[i + 1] = (char) ((b[i] + 1) & 0xff);
+        }
+        return new String(c);
+    }
+
     /**
      * Decode a serialized type object.  If deserialization fails because
      * a type could not be resolved, the method returns null.  The calling
@@ -157,8 +225,20 @@ public class TypeEncoder {
 
         try {
             byte[] b;
+            boolean compact = false;
 
-            if (base64) {
+            if (!s.isEmpty() && s.charAt(0) < ' ' && s.charAt(0) != BINARY_V2) {
+                throw new InvalidClassException(name,
+                                                "unknown version of the binary format");
+            }
+            if (!s.isEmpty() && s.charAt(0) == BINARY_V2) {
+                b = new byte[s.length() - 1];
+                for (int i = 0; i < b.length; i++) {
+                    b[i] = (byte) (s.charAt(i + 1) - 1);
+                }
+                compact = true;
+            }
+            else if (base64) {
                 b = Base64.decode(s);
             }
             else {
@@ -179,7 +259,7 @@ public class TypeEncoder {
 //                                            ts,
 //                                            placeHolderCache);
 //            }
-            try (TypeInputStream ois = ois(new ByteArrayInputStream(b))) {
+            try (TypeInputStream ois = ois(new ByteArrayInputStream(b), compact)) {
                 TypeObject o = (TypeObject) ois.readObject();
 
                 if (ois.deserializationFailed()) return null;
@@ -211,6 +291,11 @@ public class TypeEncoder {
     }
 
     public TypeInputStream ois(ByteArrayInputStream bais) throws IOException {
-        return new TypeInputStream(bais, ts, placeHolderCache);
+        return ois(bais, false);
+    }
+
+    public TypeInputStream ois(ByteArrayInputStream bais, boolean compact)
+            throws IOException {
+        return new TypeInputStream(bais, ts, placeHolderCache, compact);
     }
 }
@@ -28,10 +28,14 @@ package polyglot.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import polyglot.main.Report;
 import polyglot.types.Named;
@@ -40,18 +44,29 @@ import polyglot.types.PlaceHolder;
 import polyglot.types.TypeObject;
 import polyglot.types.TypeSystem;
 
-/** Input stream for reading type objects. */
+/**
+ * Input stream for reading type objects.  A compact stream reads class
+ * descriptors written by a compact {@code TypeOutputStream}.
+ */
 public class TypeInputStream extends ObjectInputStream {
     protected TypeSystem ts;
     protected Map<Object, Object> cache;
     protected boolean failed;
     protected boolean enableReplace;
     protected Set<Object> placeHoldersUsed;
+    protected final boolean compact;
 
     public TypeInputStream(InputStream in, TypeSystem ts,
             Map<Object, Object> cache) throws IOException {
+        this(in, ts, cache, false);
+    }
+
+    public TypeInputStream(InputStream in, TypeSystem ts,
+            Map<Object, Object> cache, boolean compact) throws IOException {
         super(in);
 
+        this.compact = compact;
+
         enableResolveObject(true);
 
         this.ts = ts;
@@ -75,6 +90,60 @@ public class TypeInputStream extends ObjectInputStream {
 
     private final static Object UNRESOLVED = new Object();
 
+    /**
+     * Descriptors of the classes named in compact streams, by class loader
+     * and class name.  Resolving a class name is expensive, and each stream
+     * names the same few classes.
+     */
+    private final static Map<ClassLoader, Map<String, ObjectStreamClass>> descriptors =
+            new WeakHashMap<>();
+
+    @Override
+    protected ObjectStreamClass readClassDescriptor() throws IOException,
+            ClassNotFoundException {
+        if (!compact) {
+            return super.readClassDescriptor();
+        }
+        String name = readUTF();
+        long suid = readLong();
+        ClassLoader loader = ts.getClass().getClassLoader();
+        Map<String, ObjectStreamClass> m;
+        synchronized (descriptors) {
+            m = descriptors.get(loader);
+            if (m == null) {
+                m = new ConcurrentHashMap<>();
+                descriptors.put(loader, m);
+            }
+        }
+        ObjectStreamClass desc = m.get(name);
+        if (desc == null) {
+            desc = ObjectStreamClass.lookup(Class.forName(name, false, loader));
+            if (desc == null) {
+                throw new InvalidClassException(name, "class not serializable");
+            }
+            m.put(name, desc);
+        }
+        // The serialVersionUID of a Polyglot class is computed from its
+        // serializable fields, so this also checks that the stream and the
+        // local class have the same fields.
+        if (desc.getSerialVersionUID() != suid) {
+            throw new InvalidClassException(name, "serialVersionUID " + suid
+                    + " does not match local class, which has "
+                    + desc.getSerialVersionUID());
+        }
+        return desc;
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc)
+            throws IOException, ClassNotFoundException {
+        if (compact) {
+            // The descriptor was looked up from the class itself.
+            return desc.forClass();
+        }
+        return super.resolveClass(desc);
+    }
+
     public void installInPlaceHolderCache(PlaceHolder p, TypeObject t) {
         cache.put(p, t);
 
@@ -28,6 +28,7 @@ package polyglot.util;
 
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
 import java.io.OutputStream;
 import java.util.Collections;
 import java.util.HashMap;
@@ -38,17 +39,29 @@ import polyglot.main.Report;
 import polyglot.types.TypeObject;
 import polyglot.types.TypeSystem;
 
-/** Output stream for writing type objects. */
+/**
+ * Output stream for writing type objects.  A compact stream describes each
+ * class by its name and serialVersionUID alone, rather than also by its
+ * serializable fields, and can only be read by a compact
+ * {@code TypeInputStream} of a compiler with the same classes.
+ */
 public class TypeOutputStream extends ObjectOutputStream {
     protected TypeSystem ts;
     protected Set<? extends TypeObject> roots;
     protected Map<IdentityKey, Object> placeHolders;
+    protected final boolean compact;
 
     public TypeOutputStream(OutputStream out, TypeSystem ts, TypeObject root)
             throws IOException {
+        this(out, ts, root, false);
+    }
+
+    public TypeOutputStream(OutputStream out, TypeSystem ts, TypeObject root,
+            boolean compact) throws IOException {
         super(out);
 
         this.ts = ts;
+        this.compact = compact;
         this.roots = ts.getTypeEncoderRootSet(root);
         this.placeHolders = new HashMap<>();
 
@@ -59,6 +72,18 @@ public class TypeOutputStream extends ObjectOutputStream {
         enableReplaceObject(true);
     }
 
+    @Override
+    protected void writeClassDescriptor(ObjectStreamClass desc)
+            throws IOException {
+        if (compact) {
+            writeUTF(desc.getName());
+            writeLong(desc.getSerialVersionUID());
+        }
+        else {
+            super.writeClassDescriptor(desc);
+        }
+    }
+
     protected Object placeHolder(TypeObject o, boolean useRoots) {
         IdentityKey k = new IdentityKey(o);
         Object p = placeHolders.get(k);
@@ -57,13 +57,28 @@ public class UnicodeWriter extends FilterWriter {
 
     @Override
     public void write(char[] cbuf, int off, int len) throws IOException {
-        for (int i = 0; i < len; i++) {
-            write(cbuf[i + off]);
+        // Write the runs of characters that need no escape at once.
+        int start = off;
+        for (int i = off; i < off + len; i++) {
+            if (cbuf[i] > 0xFF) {
+                if (i > start) out.write(cbuf, start, i - start);
+                write(cbuf[i]);
+                start = i + 1;
+            }
         }
+        if (off + len > start) out.write(cbuf, start, off + len - start);
     }
 
     @Override
     public void write(String str, int off, int len) throws IOException {
-        write(str.toCharArray(), off, len);
+        int start = off;
+        for (int i = off; i < off + len; i++) {
+            if (str.charAt(i) > 0xFF) {
+                if (i > start) out.write(str, start, i - start);
+                write(str.charAt(i));
+                start = i + 1;
+            }
+        }
+        if (off + len > start) out.write(str, start, off + len - start);
     }
 }
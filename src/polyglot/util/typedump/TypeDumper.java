@@ -48,6 +48,7 @@ import polyglot.types.TypeSystem;
 import polyglot.types.reflect.ClassFile;
 import polyglot.util.CodeWriter;
 import polyglot.util.Position;
+import polyglot.util.TypeEncoder;
 
 public class TypeDumper {
     static Set<Class<?>> dontExpand;
@@ -109,7 +110,17 @@ public class TypeDumper {
                     c.getDeclaredField("jlc$CompilerVersion$" + suffix);
             Field jlcTimestamp =
                     c.getDeclaredField("jlc$SourceLastModified$" + suffix);
-            Field jlcType = c.getDeclaredField("jlc$ClassType$" + suffix);
+            Field jlcType;
+            try {
+                jlcType =
+                        c.getDeclaredField(TypeEncoder.BINARY_FIELD_PREFIX
+                                + suffix);
+            }
+            catch (NoSuchFieldException e) {
+                jlcType =
+                        c.getDeclaredField(TypeEncoder.LEGACY_FIELD_PREFIX
+                                + suffix);
+            }
             jlcVersion.setAccessible(true);
             jlcTimestamp.setAccessible(true);
             jlcType.setAccessible(true);
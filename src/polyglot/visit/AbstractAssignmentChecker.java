@@ -238,6 +238,8 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
      * is immutable.
      */
     public static class FlowItem extends DataFlow.Item {
+        final AssignmentStatusMap statuses;
+
         public final Map<VarInstance, AssignmentStatus> assignmentStatus;
 
         /**
@@ -247,7 +249,10 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
 
         protected FlowItem(Map<VarInstance, AssignmentStatus> map,
                 boolean canTerminateNormally) {
-            assignmentStatus = Collections.unmodifiableMap(new HashMap<>(map));
+            statuses =
+                    AssignmentStatusMap.copyOf(map,
+                                               new AssignmentStatusMap.Index());
+            assignmentStatus = Collections.unmodifiableMap(statuses);
             normalTermination = canTerminateNormally;
         }
 
@@ -260,14 +265,14 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
         public boolean equals(Object o) {
             if (o instanceof FlowItem) {
                 // XXX Why is normalTermination ignored here?
-                return assignmentStatus.equals(((FlowItem) o).assignmentStatus);
+                return statuses.equals(((FlowItem) o).statuses);
             }
             return false;
         }
 
         @Override
         public int hashCode() {
-            return assignmentStatus.hashCode();
+            return statuses.hashCode();
         }
     }
 
@@ -300,6 +305,31 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
 
     protected final FI BOTTOM = BOTTOM();
 
+    /**
+     * Numbering of the variables of the code body being analyzed. Flow items
+     * built over the same index are joined and compared a word at a time.
+     */
+    private AssignmentStatusMap.Index varIndex =
+            new AssignmentStatusMap.Index();
+
+    /**
+     * Returns a mutable copy of the assignment-status map of {@code fi}.
+     */
+    protected Map<VarInstance, AssignmentStatus> copyAssignmentStatus(
+            FlowItem fi) {
+        return new AssignmentStatusMap(fi.statuses);
+    }
+
+    /**
+     * Returns a mutable map holding the assignment statuses of the fields of
+     * the current class.
+     */
+    protected Map<VarInstance, AssignmentStatus> fieldAssignmentStatuses() {
+        AssignmentStatusMap m = new AssignmentStatusMap(varIndex);
+        m.putAll(curCBI.curClassFieldAsgtStatuses);
+        return m;
+    }
+
     /**
      * Constructs the flow item at the bottom of the lattice.
      */
@@ -310,6 +340,7 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
     @Override
     protected FlowGraph<FI> initGraph(CodeNode code, Term root) {
         curCBI.curCodeDecl = code;
+        varIndex = new AssignmentStatusMap.Index();
         return new FlowGraph<>(root, forward);
     }
 
@@ -438,6 +469,7 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
     protected void dataflow(Expr root) throws SemanticException {
         // Build the control flow graph.
         FlowGraph<FI> g = new FlowGraph<>(root, forward);
+        varIndex = new AssignmentStatusMap.Index();
         CFGBuilder<FI> v = createCFGBuilder(ts, g);
         v.visitGraph();
         dataflow(g);
@@ -457,7 +489,7 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
      * ClassBodyInfo#curClassFieldAsgtStatuses}.
      */
     protected FI createInitDFI() {
-        return newFlowItem(new HashMap<VarInstance, AssignmentStatus>(curCBI.curClassFieldAsgtStatuses));
+        return newFlowItem(fieldAssignmentStatuses());
     }
 
     @Override
@@ -486,7 +518,7 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
             if (filtered.isEmpty()) {
                 // Record the fact that this dataflow item was not produced for
                 // a node that can be reached by normal termination.
-                return newFlowItem(new HashMap<VarInstance, AssignmentStatus>(curCBI.curClassFieldAsgtStatuses),
+                return newFlowItem(fieldAssignmentStatuses(),
                                    false);
             }
 
@@ -510,20 +542,14 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
     protected FI confluence(List<FI> inItems, Peer<FI> peer,
             FlowGraph<FI> graph) {
         // Resolve any conflicts pairwise.
-        Map<VarInstance, AssignmentStatus> m = null;
+        AssignmentStatusMap m = null;
         for (FI itm : inItems) {
             if (itm == BOTTOM) continue;
             if (m == null) {
-                m = new HashMap<>(itm.assignmentStatus);
+                m = new AssignmentStatusMap(itm.statuses);
             }
             else {
-                Map<VarInstance, AssignmentStatus> n = itm.assignmentStatus;
-                for (Entry<VarInstance, AssignmentStatus> e : n.entrySet()) {
-                    VarInstance v = e.getKey();
-                    AssignmentStatus as1 = m.get(v);
-                    AssignmentStatus as2 = e.getValue();
-                    m.put(v, AssignmentStatus.join(as1, as2));
-                }
+                m.joinWith(itm.statuses);
             }
         }
 
@@ -572,7 +598,7 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
                 LocalDecl ld = (LocalDecl) n;
                 if (inItem.assignmentStatus.containsKey(ld.localInstance())) {
                     Map<VarInstance, AssignmentStatus> newAsgtStatus =
-                            new HashMap<>(inItem.assignmentStatus);
+                            copyAssignmentStatus(inItem);
 
                     newAsgtStatus.remove(ld.localInstance());
                     inItem = newFlowItem(newAsgtStatus);
@@ -663,10 +689,9 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
             return m;
         }
 
-        Map<VarInstance, AssignmentStatus> assignmentStatus = new HashMap<>();
-        for (VarInstance vi : fi.assignmentStatus.keySet()) {
-            assignmentStatus.put(vi, asgtStatus);
-        }
+        AssignmentStatusMap assignmentStatus =
+                new AssignmentStatusMap(fi.statuses);
+        assignmentStatus.setAll(asgtStatus);
 
         FI newFI = reconstructFlowItem(fi, assignmentStatus);
         Map<EdgeKey, FI> newM = new HashMap<>(m);
@@ -679,8 +704,7 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
      */
     protected Map<EdgeKey, FI> flowFormal(FI inItem, FlowGraph<FI> graph,
             Formal f, Set<EdgeKey> succEdgeKeys) {
-        Map<VarInstance, AssignmentStatus> m =
-                new HashMap<>(inItem.assignmentStatus);
+        Map<VarInstance, AssignmentStatus> m = copyAssignmentStatus(inItem);
         // a formal argument is always defined.
         m.put(f.localInstance().orig(), AssignmentStatus.ASSIGNED);
 
@@ -696,8 +720,7 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
      */
     protected Map<EdgeKey, FI> flowLocalDecl(FI inItem, FlowGraph<FI> graph,
             LocalDecl ld, Set<EdgeKey> succEdgeKeys) {
-        Map<VarInstance, AssignmentStatus> m =
-                new HashMap<>(inItem.assignmentStatus);
+        Map<VarInstance, AssignmentStatus> m = copyAssignmentStatus(inItem);
 
         AssignmentStatus asgtStatus = ld.init() == null
                 ? AssignmentStatus.UNASSIGNED : AssignmentStatus.ASSIGNED;
@@ -716,8 +739,7 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
     protected Map<EdgeKey, FI> flowLocalAssign(FI inItem, FlowGraph<FI> graph,
             LocalAssign a, Set<EdgeKey> succEdgeKeys) {
         Local l = a.left();
-        Map<VarInstance, AssignmentStatus> m =
-                new HashMap<>(inItem.assignmentStatus);
+        Map<VarInstance, AssignmentStatus> m = copyAssignmentStatus(inItem);
         m.put(l.localInstance().orig(), AssignmentStatus.ASSIGNED);
 
         return DataFlow.<FI> itemToMap(reconstructFlowItem(inItem, m),
@@ -736,8 +758,7 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
         // what we are interested in.
         if (!isFieldsTargetAppropriate(graph, f)) return null;
 
-        Map<VarInstance, AssignmentStatus> m =
-                new HashMap<>(inItem.assignmentStatus);
+        Map<VarInstance, AssignmentStatus> m = copyAssignmentStatus(inItem);
 
         // m.get(fi.orig()) may be null if the field is defined in an
         // outer class. If so, ignore this assignment.
@@ -764,7 +785,7 @@ public abstract class AbstractAssignmentChecker<CBI extends AbstractAssignmentCh
             curCBI.constructorsCallingThis.add(cd);
 
             // Set all final non-static fields as assigned.
-            Map<VarInstance, AssignmentStatus> m = new HashMap<>(inItem.assignmentStatus);
+            Map<VarInstance, AssignmentStatus> m = copyAssignmentStatus(inItem);
             ReferenceType container = cd.constructorInstance().container();
             for (FieldInstance fi : container.fields())
                 if (fi.flags().isFinal() && !fi.flags().isStatic())
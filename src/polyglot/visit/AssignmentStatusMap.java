@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.visit;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import polyglot.types.VarInstance;
+import polyglot.util.BitVector;
+import polyglot.util.InternalCompilerError;
+import polyglot.visit.AbstractAssignmentChecker.AssignmentStatus;
+
+/**
+ * A map from {@link VarInstance}s to {@link AssignmentStatus}es stored as
+ * bit vectors. Variables are numbered by an {@link Index} shared by all maps
+ * of one code body; for each variable number, one bit records whether the
+ * variable is in the map, one whether it is definitely assigned and one
+ * whether it is definitely unassigned. Maps over the same index are copied,
+ * joined and compared a word at a time.
+ */
+final class AssignmentStatusMap extends AbstractMap<VarInstance, AssignmentStatus> {
+    /**
+     * Numbering of the variables of a code body. Numbers are never
+     * reassigned, so maps built at any point of the dataflow remain valid.
+     */
+    static final class Index {
+        private final Map<VarInstance, Integer> numbers = new HashMap<>();
+        private final List<VarInstance> vars = new ArrayList<>();
+
+        int lookup(Object v) {
+            Integer i = numbers.get(v);
+            return i == null ? -1 : i.intValue();
+        }
+
+        int add(VarInstance v) {
+            Integer i = numbers.get(v);
+            if (i != null) return i.intValue();
+            int n = vars.size();
+            numbers.put(v, n);
+            vars.add(v);
+            return n;
+        }
+
+        VarInstance var(int i) {
+            return vars.get(i);
+        }
+    }
+
+    private final Index index;
+    /** Invariant: assigned and unassigned are subsets of present. */
+    private final BitVector present, assigned, unassigned;
+
+    AssignmentStatusMap(Index index) {
+        this.index = index;
+        present = new BitVector();
+        assigned = new BitVector();
+        unassigned = new BitVector();
+    }
+
+    AssignmentStatusMap(AssignmentStatusMap m) {
+        index = m.index;
+        present = new BitVector(m.present);
+        assigned = new BitVector(m.assigned);
+        unassigned = new BitVector(m.unassigned);
+    }
+
+    /**
+     * Return a copy of {@code m} numbered by {@code index}, or by the index
+     * of {@code m} if it is already an {@code AssignmentStatusMap}.
+     */
+    static AssignmentStatusMap copyOf(Map<VarInstance, AssignmentStatus> m,
+            Index index) {
+        if (m instanceof AssignmentStatusMap)
+            return new AssignmentStatusMap((AssignmentStatusMap) m);
+        AssignmentStatusMap copy = new AssignmentStatusMap(index);
+        copy.putAll(m);
+        return copy;
+    }
+
+    private AssignmentStatus status(int i) {
+        boolean a = assigned.getBit(i);
+        boolean u = unassigned.getBit(i);
+        if (a)
+            return u ? AssignmentStatus.BOTH : AssignmentStatus.ASSIGNED;
+        return u ? AssignmentStatus.UNASSIGNED : AssignmentStatus.NEITHER;
+    }
+
+    private int find(Object key) {
+        int i = index.lookup(key);
+        return i >= 0 && present.getBit(i) ? i : -1;
+    }
+
+    @Override
+    public AssignmentStatus get(Object key) {
+        int i = find(key);
+        return i < 0 ? null : status(i);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public AssignmentStatus put(VarInstance key, AssignmentStatus value) {
+        if (value == null)
+            throw new InternalCompilerError("Cannot map " + key
+                    + " to a null assignment status");
+        int i = index.add(key);
+        AssignmentStatus old = present.getBit(i) ? status(i) : null;
+        present.setBit(i, true);
+        assigned.setBit(i, value.definitelyAssigned);
+        unassigned.setBit(i, value.definitelyUnassigned);
+        return old;
+    }
+
+    @Override
+    public AssignmentStatus remove(Object key) {
+        int i = find(key);
+        if (i < 0) return null;
+        AssignmentStatus old = status(i);
+        clear(i);
+        return old;
+    }
+
+    private void clear(int i) {
+        present.setBit(i, false);
+        assigned.setBit(i, false);
+        unassigned.setBit(i, false);
+    }
+
+    @Override
+    public int size() {
+        return present.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return present.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        present.fill(index.vars.size(), false);
+        assigned.fill(index.vars.size(), false);
+        unassigned.fill(index.vars.size(), false);
+    }
+
+    /**
+     * Join {@code m} into this map. Variables in both maps get the join of
+     * their statuses; variables in just one map keep their status.
+     */
+    void joinWith(Map<VarInstance, AssignmentStatus> m) {
+        if (m instanceof AssignmentStatusMap
+                && ((AssignmentStatusMap) m).index == index) {
+            AssignmentStatusMap that = (AssignmentStatusMap) m;
+            joinBits(assigned, that.assigned, that.present);
+            joinBits(unassigned, that.unassigned, that.present);
+            present.or(that.present);
+            return;
+        }
+
+        for (Entry<VarInstance, AssignmentStatus> e : m.entrySet()) {
+            VarInstance v = e.getKey();
+            put(v, AssignmentStatus.join(get(v), e.getValue()));
+        }
+    }
+
+    /**
+     * Join the bits {@code otherBits} of a map with key set
+     * {@code otherPresent} into {@code bits}, one of the bit vectors of this
+     * map. Variables in both maps keep a bit only if both maps have it set;
+     * variables only in the other map take its bit.
+     */
+    private void joinBits(BitVector bits, BitVector otherBits,
+            BitVector otherPresent) {
+        BitVector lost = new BitVector(otherPresent);
+        lost.andNot(otherBits);
+        BitVector gained = new BitVector(otherBits);
+        gained.andNot(present);
+        bits.andNot(lost);
+        bits.or(gained);
+    }
+
+    /** Map every variable in this map to {@code status}. */
+    void setAll(AssignmentStatus status) {
+        if (status.definitelyAssigned)
+            assigned.or(present);
+        else assigned.andNot(present);
+        if (status.definitelyUnassigned)
+            unassigned.or(present);
+        else unassigned.andNot(present);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof AssignmentStatusMap
+                && ((AssignmentStatusMap) o).index == index) {
+            AssignmentStatusMap that = (AssignmentStatusMap) o;
+            return present.equals(that.present)
+                    && assigned.equals(that.assigned)
+                    && unassigned.equals(that.unassigned);
+        }
+        return super.equals(o);
+    }
+
+    /**
+     * The hash code of {@link Map}, computed from the bits without making
+     * entries, so that it agrees with maps of other classes equal to this
+     * one.
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = present.nextSetBit(0); i >= 0; i =
+                present.nextSetBit(i + 1)) {
+            h += index.var(i).hashCode() ^ status(i).hashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public Set<Entry<VarInstance, AssignmentStatus>> entrySet() {
+        return new AbstractSet<Entry<VarInstance, AssignmentStatus>>() {
+            @Override
+            public Iterator<Entry<VarInstance, AssignmentStatus>> iterator() {
+                return new Iterator<Entry<VarInstance, AssignmentStatus>>() {
+                    private int next = present.nextSetBit(0);
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public Entry<VarInstance, AssignmentStatus> next() {
+                        if (next < 0) throw new NoSuchElementException();
+                        last = next;
+                        next = present.nextSetBit(next + 1);
+                        return new SimpleImmutableEntry<>(index.var(last),
+                                                          status(last));
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0) throw new IllegalStateException();
+                        AssignmentStatusMap.this.clear(last);
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return AssignmentStatusMap.this.size();
+            }
+        };
+    }
+}
@@ -38,12 +38,14 @@ import polyglot.ast.FieldDecl;
 import polyglot.ast.IntLit;
 import polyglot.ast.Node;
 import polyglot.ast.NodeFactory;
+import polyglot.frontend.Source;
 import polyglot.main.Report;
 import polyglot.main.Version;
 import polyglot.types.ClassType;
 import polyglot.types.FieldInstance;
 import polyglot.types.Flags;
 import polyglot.types.InitializerInstance;
+import polyglot.types.SignatureCache;
 import polyglot.types.TypeSystem;
 import polyglot.util.ErrorInfo;
 import polyglot.util.ErrorQueue;
@@ -68,6 +70,8 @@ public class ClassSerializer extends NodeVisitor {
     protected TypeSystem ts;
     protected NodeFactory nf;
     protected Version ver;
+    protected SignatureCache signatureCache;
+    protected Source source;
 
     public ClassSerializer(TypeSystem ts, NodeFactory nf, long time,
             ErrorQueue eq, Version ver) {
@@ -80,6 +84,15 @@ public class ClassSerializer extends NodeVisitor {
         this.ver = ver;
     }
 
+    /**
+     * Also store the encoded types in {@code cache}, recording that they were
+     * compiled from {@code source}.
+     */
+    public void setSignatureCache(SignatureCache cache, Source source) {
+        this.signatureCache = cache;
+        this.source = source;
+    }
+
     @Override
     public Node override(Node n) {
         // Stop at class members. We only want to encode top-level classes.
@@ -136,7 +149,8 @@ public class ClassSerializer extends NodeVisitor {
             // Check if we've already serialized.
             if (ct.fieldNamed("jlc$CompilerVersion$" + suffix) != null
                     || ct.fieldNamed("jlc$SourceLastModified$" + suffix) != null
-                    || ct.fieldNamed("jlc$ClassType$" + suffix) != null) {
+                    || ct.fieldNamed(TypeEncoder.LEGACY_FIELD_PREFIX + suffix) != null
+                    || ct.fieldNamed(TypeEncoder.BINARY_FIELD_PREFIX + suffix) != null) {
 
                 eq.enqueue(ErrorInfo.SEMANTIC_ERROR,
                            "Cannot serialize class information "
@@ -198,6 +212,14 @@ public class ClassSerializer extends NodeVisitor {
 
             // output the encoded type info, over several fields if needed.
             String encodedTypeInfo = te.encode(ct);
+            if (signatureCache != null && source != null) {
+                // Member classes are looked up by their class file names.
+                signatureCache.store(ts.getTransformedClassName(ct),
+                                     source,
+                                     version,
+                                     encodedTypeInfo);
+            }
+
             int etiStart = 0;
             int etiEnd = 0;
             int numberETIFields = 0;
@@ -215,7 +237,7 @@ public class ClassSerializer extends NodeVisitor {
                                          ct,
                                          flags,
                                          ts.String(),
-                                         "jlc$ClassType$" + suffix
+                                         te.fieldPrefix() + suffix
                                                  + additionalFieldSuffix);
                 fi.setConstantValue(encoded);
                 ii = ts.initializerInstance(pos, ct, Flags.STATIC);
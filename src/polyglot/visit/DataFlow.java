@@ -28,6 +28,7 @@ package polyglot.visit;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -223,6 +224,8 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
      * {@code Peer} and the input {@code Item}s.
      * Subclasses should override if flow behavior needs to distinguish
      * between source peers.
+     * The lists are read-only, and are reused once this method returns;
+     * implementations that keep their contents must copy them.
      * 
      * @param inItems all the Items flowing into the node. 
      * @param inItemKeys the FlowGraph.EdgeKeys for the items in the list inItems
@@ -460,6 +463,9 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
      * Item from a List of Items, for the confluence just before flow enters 
      * node.
      * 
+     * The list is read-only, and is reused once this method returns;
+     * implementations that keep its contents must copy it.
+     * 
      * @param items List of {@code Item}s that flow into {@code node}.
      *            this method will only be called if the list has at least 2
      *            elements.
@@ -827,6 +833,17 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
         int current = 0;
         boolean change = false;
 
+        // The in item lists are reused for every peer. Flow and confluence
+        // are given read-only views of them, which they must not retain.
+        List<FlowItem> inItems = new ArrayList<>();
+        List<EdgeKey> inItemKeys = new ArrayList<>();
+        List<Peer<FlowItem>> inItemPeers = new ArrayList<>();
+        List<FlowItem> inItemsView = Collections.unmodifiableList(inItems);
+        List<EdgeKey> inItemKeysView =
+                Collections.unmodifiableList(inItemKeys);
+        List<Peer<FlowItem>> inItemPeersView =
+                Collections.unmodifiableList(inItemPeers);
+
         while (current < npeers) {
             Peer<FlowItem> p = by_scc[current];
             if (scc_head[current] == -1) {
@@ -835,9 +852,9 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
 
             // get the in items by examining the out items of all
             // the predecessors of p
-            List<FlowItem> inItems = new ArrayList<>(p.preds.size());
-            List<EdgeKey> inItemKeys = new ArrayList<>(p.preds.size());
-            List<Peer<FlowItem>> inItemPeers = new ArrayList<>(p.preds.size());
+            inItems.clear();
+            inItemKeys.clear();
+            inItemPeers.clear();
             for (Edge<FlowItem> e : p.preds) {
                 Peer<FlowItem> o = e.getTarget();
                 if (o.outItems != null) {
@@ -858,8 +875,14 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
 
             // calculate the out item
             Map<EdgeKey, FlowItem> oldOutItems = p.outItems;
-            p.inItem = this.safeConfluence(inItems, inItemKeys, p, graph);
-            p.outItems = this.flow(inItems, inItemKeys, inItemPeers, graph, p);
+            p.inItem =
+                    this.safeConfluence(inItemsView, inItemKeysView, p, graph);
+            p.outItems =
+                    this.flow(inItemsView,
+                              inItemKeysView,
+                              inItemPeersView,
+                              graph,
+                              p);
 
             if (!p.succEdgeKeys().equals(p.outItems.keySet())) {
                 // This check is more for developers to ensure that they
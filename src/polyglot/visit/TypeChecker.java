@@ -26,9 +26,14 @@
 
 package polyglot.visit;
 
+import polyglot.ast.ClassDecl;
+import polyglot.ast.Field;
 import polyglot.ast.JLang;
 import polyglot.ast.Node;
 import polyglot.ast.NodeFactory;
+import polyglot.ast.ProcedureCall;
+import polyglot.ast.Typed;
+import polyglot.frontend.DependencyGraph;
 import polyglot.frontend.Job;
 import polyglot.frontend.MissingDependencyException;
 import polyglot.frontend.Scheduler;
@@ -155,6 +160,10 @@ public class TypeChecker extends DisambiguationDriver {
                 m = lang().checkConstants(m, cc);
             }
 
+            if (job != null && job.dependencies() != null) {
+                recordDependencies(m, job.dependencies());
+            }
+
 //            if (! m.isTypeChecked()) {
 //                throw new InternalCompilerError("Type checking failed for " + m + " (" + m.getClass().getName() + ")", m.position());
 //            }
@@ -170,4 +179,24 @@ public class TypeChecker extends DisambiguationDriver {
 
         return m;
     }
+
+    /**
+     * Record the classes the type-checked node {@code n} declares or refers
+     * to, for incremental compilation.
+     */
+    protected void recordDependencies(Node n, DependencyGraph.Dependencies deps) {
+        if (n instanceof Typed) {
+            deps.reference(((Typed) n).type());
+        }
+        if (n instanceof ClassDecl && ((ClassDecl) n).type() != null) {
+            deps.declare(((ClassDecl) n).type());
+        }
+        if (n instanceof ProcedureCall
+                && ((ProcedureCall) n).procedureInstance() != null) {
+            deps.reference(((ProcedureCall) n).procedureInstance().container());
+        }
+        if (n instanceof Field && ((Field) n).fieldInstance() != null) {
+            deps.reference(((Field) n).fieldInstance().container());
+        }
+    }
 }
@@ -0,0 +1,4 @@
+// Run first: takes a snapshot of the boot class path classes it loads.
+public class BootSnapshot01 {
+    java.util.ArrayList l = new java.util.ArrayList();
+}
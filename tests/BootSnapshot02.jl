@@ -0,0 +1,5 @@
+// Run after BootSnapshot01: loads a class that is in a package listed by
+// the snapshot but is not kept in it.
+public class BootSnapshot02 {
+    java.util.TreeMap m = new java.util.TreeMap();
+}
@@ -0,0 +1,5 @@
+public class Incremental01 {
+    int f(incr.IncrC c) {
+        return c.f(null);
+    }
+}
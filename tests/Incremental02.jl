@@ -0,0 +1,5 @@
+public class Incremental02 {
+    int f(incr.IncrD d) {
+        return d.f();
+    }
+}
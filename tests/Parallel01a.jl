@@ -0,0 +1,5 @@
+class Parallel01a {
+    int f(Parallel01b b) {
+        return b.g() + 1;
+    }
+}
@@ -0,0 +1,5 @@
+class Parallel01b {
+    int g() {
+        return new Parallel01c().h();
+    }
+}
@@ -0,0 +1,5 @@
+class Parallel01c {
+    int h() {
+        return 1;
+    }
+}
@@ -0,0 +1,3 @@
+class Parallel02a {
+    int x = ;
+}
@@ -0,0 +1,3 @@
+class Parallel02b {
+    int y = 1
+}
@@ -0,0 +1 @@
+class Parallel03 { }
@@ -0,0 +1,5 @@
+class PostBatch01a {
+    int f() {
+        return 1;
+    }
+}
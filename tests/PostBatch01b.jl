@@ -0,0 +1,5 @@
+class PostBatch01b {
+    int g(PostBatch01a a) {
+        return a.f();
+    }
+}
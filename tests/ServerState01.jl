@@ -0,0 +1,3 @@
+class ServerState01 { }
+
+class ServerStateA { }
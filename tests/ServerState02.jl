@@ -0,0 +1,3 @@
+class ServerState02 {
+    ServerStateA a;
+}
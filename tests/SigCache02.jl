@@ -0,0 +1,6 @@
+public class SigCache02 {
+    int h(p.Dep d) {
+        p.Dep.In i = new p.Dep.In();
+        return d.g() + i.f;
+    }
+}
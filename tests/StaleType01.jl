@@ -0,0 +1,3 @@
+public class StaleType01 {
+    StaleType t;
+}
@@ -0,0 +1,7 @@
+package incr;
+
+public class IncrA {
+    public int m() {
+        return 1;
+    }
+}
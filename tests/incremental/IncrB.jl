@@ -0,0 +1,7 @@
+package incr;
+
+public class IncrB {
+    public int g() {
+        return new IncrA().m();
+    }
+}
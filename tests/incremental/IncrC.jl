@@ -0,0 +1,7 @@
+package incr;
+
+public class IncrC {
+    public int f(IncrB b) {
+        return 2;
+    }
+}
@@ -0,0 +1,7 @@
+package incr;
+
+public class IncrD {
+    public int f() {
+        return 3;
+    }
+}
@@ -0,0 +1,5 @@
+package incr;
+
+public class IncrE {
+    IncrMissing m;
+}
@@ -0,0 +1,10 @@
+/**
+ * A class whose encoded Polyglot type names ParsedClassType_c with a
+ * serialVersionUID that does not match the compiler's.
+ */
+public class StaleType {
+    public static final String jlc$CompilerVersion$jl = "2.7.1";
+    public static final long jlc$SourceLastModified$jl = 0L;
+    public static final String jlc$BinaryClassType$jl =
+            "\u0002\u00ad\u00ee\u0001\u0006ts\u0001!qpmzhmpu/uzqft/QbstfeDmbttUzqf`d\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0002";
+}
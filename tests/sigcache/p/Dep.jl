@@ -0,0 +1,11 @@
+package p;
+
+public class Dep {
+    public static class In {
+        public int f;
+    }
+
+    public int g() {
+        return 1;
+    }
+}
@@ -1,6 +1,8 @@
 package java_cup;
 
 import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Stack;
 
 /**
@@ -810,6 +812,21 @@ public class emit {
         out.println("  @Override");
         out.println("  public short[][] action_table() {return _action_table;}");
 
+        /* emit the direct-indexed form of the table, if it fits */
+        short[][] direct_table = do_direct_table(action_table);
+        if (direct_table != null) {
+            out.println();
+            out.println("  /** Direct-indexed parse-action table. */");
+            out.println("  protected static final short[][] _action_direct_table = ");
+            out.print("    unpackFromStrings(");
+            do_table_as_string(out, direct_table);
+            out.println(");");
+            out.println();
+            out.println("  /** Access to direct-indexed parse-action table. */");
+            out.println("  @Override");
+            out.println("  public short[][] action_direct_table() {return _action_direct_table;}");
+        }
+
         action_table_time = System.currentTimeMillis() - start_time;
     }
 
@@ -868,9 +885,128 @@ public class emit {
         out.println("  public short[][] reduce_table() {return _reduce_table;}");
         out.println();
 
+        /* emit the direct-indexed form of the table, if it fits */
+        short[][] direct_table = do_direct_table(reduce_goto_table);
+        if (direct_table != null) {
+            out.println("  /** Direct-indexed {@code reduce_goto} table. */");
+            out.println("  protected static final short[][] _reduce_direct_table = ");
+            out.print("    unpackFromStrings(");
+            do_table_as_string(out, direct_table);
+            out.println(");");
+            out.println();
+            out.println("  /** Access to direct-indexed {@code reduce_goto} table. */");
+            out.println("  @Override");
+            out.println("  public short[][] reduce_direct_table() {return _reduce_direct_table;}");
+            out.println();
+        }
+
         goto_table_time = System.currentTimeMillis() - start_time;
     }
 
+    /** Build the direct-indexed (row displacement) form of a table whose
+     *  rows are lists of index, value pairs terminated by a default entry,
+     *  as in the action and reduce-goto tables.  The result has four rows:
+     *  <dl>
+     *  <dt> base    <dd> for each state, the displacement of its row, as an
+     *                    unsigned value
+     *  <dt> check   <dd> for each position, the state that owns it, or -1
+     *  <dt> value   <dd> for each position, the entry stored there
+     *  <dt> default <dd> for each state, the value of its default entry
+     *  </dl>
+     *  The entry for state s and index i is value[base[s]+i] if
+     *  check[base[s]+i] == s, and default[s] otherwise.  Rows are placed
+     *  greedily, largest first, at the lowest displacement where they do
+     *  not collide with rows already placed.
+     *
+     *  @param rows the table in pair form.
+     *  @return the direct-indexed table, or null if it does not fit in the
+     *          16-bit encoding.
+     */
+    protected static short[][] do_direct_table(short[][] rows) {
+        int num_states = rows.length;
+        if (num_states > Short.MAX_VALUE) return null;
+
+        /* order the states by decreasing number of entries */
+        Integer[] order = new Integer[num_states];
+        for (int i = 0; i < num_states; i++)
+            order[i] = i;
+        final short[][] r = rows;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return r[b].length - r[a].length;
+            }
+        });
+
+        int[] base = new int[num_states];
+        int[] check = new int[1024];
+        Arrays.fill(check, -1);
+        short[] value = new short[check.length];
+        int size = 0; // number of positions in use, including holes
+        int first_free = 0; // no free position precedes this one
+
+        for (int s : order) {
+            short[] row = rows[s];
+            int nentries = row.length / 2 - 1; // leave out default entry
+            if (nentries == 0) continue;
+
+            int b;
+            for (b = first_free - row[0];; b++) {
+                if (b < 0) continue;
+                boolean fits = true;
+                for (int j = 0; j < nentries && fits; j++) {
+                    int k = b + row[2 * j];
+                    fits = k >= check.length || check[k] == -1;
+                }
+                if (fits) break;
+            }
+
+            int max = b;
+            for (int j = 0; j < nentries; j++)
+                max = Math.max(max, b + row[2 * j]);
+            if (max >= check.length) {
+                int n = Math.max(2 * check.length, max + 1);
+                int[] new_check = new int[n];
+                Arrays.fill(new_check, -1);
+                System.arraycopy(check, 0, new_check, 0, check.length);
+                check = new_check;
+                short[] new_value = new short[n];
+                System.arraycopy(value, 0, new_value, 0, value.length);
+                value = new_value;
+            }
+
+            base[s] = b;
+            for (int j = 0; j < nentries; j++) {
+                int k = b + row[2 * j];
+                check[k] = s;
+                value[k] = row[2 * j + 1];
+            }
+            size = Math.max(size, max + 1);
+            while (first_free < check.length && check[first_free] != -1)
+                first_free++;
+        }
+
+        /* base entries are unsigned; 0xFFFD is the largest that survives
+           the +2 offset of the string encoding */
+        for (int s = 0; s < num_states; s++)
+            if (base[s] > 0xFFFD) return null;
+
+        short[][] result = new short[4][];
+        result[0] = new short[num_states];
+        result[3] = new short[num_states];
+        for (int s = 0; s < num_states; s++) {
+            result[0][s] = (short) base[s];
+            result[3][s] = rows[s][rows[s].length - 1];
+        }
+        result[1] = new short[size];
+        result[2] = new short[size];
+        for (int k = 0; k < size; k++) {
+            result[1][k] = (short) check[k];
+            result[2][k] = value[k];
+        }
+        return result;
+    }
+
     // print a string array encoding the given short[][] array.
     protected static void do_table_as_string(PrintWriter out, short[][] sa) {
         out.println("new String[] {");
@@ -57,6 +57,9 @@ import java_cup.runtime.ComplexSymbolFactory.ComplexSymbol;
  *  <dd> Provides a reference to the parse action table.
  *  <dt> short[][] reduce_table()
  *  <dd> Provides a reference to the reduce-goto table.
+ *  <dt> short[][] action_direct_table(), short[][] reduce_direct_table()
+ *  <dd> Optionally provide references to direct-indexed forms of the
+ *       action and reduce-goto tables.
  *  <dt> int start_state()
  *  <dd> Indicates the index of the start state.
  *  <dt> int start_production()
@@ -186,6 +189,11 @@ public abstract class lr_parser {
     /*--- (Access to) Instance Variables ------------------------*/
     /*-----------------------------------------------------------*/
 
+    /* The parse tables are held in static fields of the generated subclass,
+     * decoded once when the class is initialized, and shared by every
+     * instance and thread.  They must not be modified.
+     */
+
     /** Table of production information (supplied by generated subclass).
      *  This table contains one entry per production and is indexed by
      *  the negative-encoded values (reduce actions) in the action_table.
@@ -232,6 +240,34 @@ public abstract class lr_parser {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+    /** The action table in direct-indexed form (supplied by the generated
+     *  subclass), or null if the subclass does not supply one.  The table
+     *  has four rows: a displacement for each state (unsigned), a check
+     *  vector, a value vector, and the default action for each state.  The
+     *  action for a state and terminal is the value at the state's
+     *  displacement plus the terminal index, if the check vector holds the
+     *  state at that position, and the state's default otherwise.
+     *
+     * @see java_cup.runtime.lr_parser#get_action
+     */
+    public short[][] action_direct_table() {
+        return null;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** The reduce-goto table in direct-indexed form (supplied by the
+     *  generated subclass), or null if the subclass does not supply one.
+     *  The encoding is the same as for action_direct_table().
+     *
+     * @see java_cup.runtime.lr_parser#get_reduce
+     */
+    public short[][] reduce_direct_table() {
+        return null;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
     /** The index of the start state (supplied by generated subclass). */
     public abstract int start_state();
 
@@ -302,6 +338,17 @@ public abstract class lr_parser {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+    /** Rows of the direct-indexed action table, or null. */
+    protected short[] action_base, action_check, action_value,
+            action_default;
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Rows of the direct-indexed reduce-goto table, or null. */
+    protected short[] reduce_base, reduce_check, reduce_value;
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
     /** This is the scanner object used by the default implementation
      *  of scan() to get Symbols.  To avoid name conflicts with existing
      *  code, this field is private. [CSA/davidm] */
@@ -549,7 +596,35 @@ public abstract class lr_parser {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
-    /** Fetch an action from the action table.  The table is broken up into
+    /** Set up direct references to the parse tables, including the
+     *  direct-indexed tables if the generated subclass supplies them.  The
+     *  tables themselves are shared by all instances of the subclass.
+     */
+    protected void init_tables() {
+        production_tab = production_table();
+        action_tab = action_table();
+        reduce_tab = reduce_table();
+
+        short[][] t = action_direct_table();
+        if (t != null) {
+            action_base = t[0];
+            action_check = t[1];
+            action_value = t[2];
+            action_default = t[3];
+        }
+        t = reduce_direct_table();
+        if (t != null) {
+            reduce_base = t[0];
+            reduce_check = t[1];
+            reduce_value = t[2];
+        }
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Fetch an action from the action table.  If the generated subclass
+     *  supplies a direct-indexed table, the action is found with a single
+     *  probe.  Otherwise, the table is broken up into
      *  rows, one per state (rows are indexed directly by state number).
      *  Within each row, a list of index, value pairs are given (as sequential
      *  entries in the table), and the list is terminated by a default entry
@@ -560,6 +635,13 @@ public abstract class lr_parser {
      * @param sym   the Symbol index of the action being accessed.
      */
     protected final short get_action(int state, int sym) {
+        if (action_base != null) {
+            int k = (action_base[state] & 0xFFFF) + sym;
+            if (k < action_check.length && action_check[k] == state)
+                return action_value[k];
+            return action_default[state];
+        }
+
         short tag;
         int first, last, probe;
         short[] row = action_tab[state];
@@ -598,7 +680,9 @@ public abstract class lr_parser {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
-    /** Fetch a state from the reduce-goto table.  The table is broken up into
+    /** Fetch a state from the reduce-goto table.  If the generated subclass
+     *  supplies a direct-indexed table, the state is found with a single
+     *  probe.  Otherwise, the table is broken up into
      *  rows, one per state (rows are indexed directly by state number).
      *  Within each row, a list of index, value pairs are given (as sequential
      *  entries in the table), and the list is terminated by a default entry
@@ -609,6 +693,13 @@ public abstract class lr_parser {
      * @param sym   the Symbol index of the entry being accessed.
      */
     protected final short get_reduce(int state, int sym) {
+        if (reduce_base != null) {
+            int k = (reduce_base[state] & 0xFFFF) + sym;
+            if (k < reduce_check.length && reduce_check[k] == state)
+                return reduce_value[k];
+            return -1;
+        }
+
         short tag;
         short[] row = reduce_tab[state];
 
@@ -647,9 +738,7 @@ public abstract class lr_parser {
 
         /* set up direct reference to tables to drive the parser */
 
-        production_tab = production_table();
-        action_tab = action_table();
-        reduce_tab = reduce_table();
+        init_tables();
 
         /* initialize the action encapsulation object */
         init_actions();
@@ -820,9 +909,7 @@ public abstract class lr_parser {
         short handle_size, lhs_sym_num;
 
         /* set up direct reference to tables to drive the parser */
-        production_tab = production_table();
-        action_tab = action_table();
-        reduce_tab = reduce_table();
+        init_tables();
 
         debug_message("# Initializing parser");
 
@@ -1297,12 +1384,18 @@ public abstract class lr_parser {
 
     /*-----------------------------------------------------------*/
 
-    /** Utility function: unpacks parse tables from strings */
+    /** Utility function: unpacks parse tables from strings.  Generated
+     *  parsers call this once, when the parser class is initialized, and
+     *  share the result among all instances.
+     */
     protected static short[][] unpackFromStrings(String[] sa) {
-        // Concatanate initialization strings.
-        StringBuffer sb = new StringBuffer(sa[0]);
-        for (int i = 1; i < sa.length; i++)
-            sb.append(sa[i]);
+        // Concatenate initialization strings.
+        int length = 0;
+        for (String element : sa)
+            length += element.length();
+        StringBuilder sb = new StringBuilder(length);
+        for (String element : sa)
+            sb.append(element);
         int n = 0; // location in initialization string
         int size1 = sb.charAt(n) << 16 | sb.charAt(n + 1);
         n += 2;
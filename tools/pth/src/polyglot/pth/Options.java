@@ -85,6 +85,15 @@ public class Options {
     // filename for LaTeX report
     protected String pdffilename = null;
 
+    // number of workers on which to run the tests of a test collection
+    protected int workers = 1;
+
+    // show the time each test takes
+    protected boolean showTestTimes = false;
+
+    // run the compilations of Polyglot tests through one compile server
+    protected boolean compileServer = false;
+
     // array of the possible command line options.
     // the order in the array is the order that they will be applied in.
     protected CommandLineOption[] commandLineOpts = {
@@ -158,6 +167,33 @@ public class Options {
                                 + "between 0 and 9 inclusive.");
                     return index + 1;
                 }
+            },
+            new CommandLineOption(new String[] { "parallel" },
+                                  "n",
+                                  "run the tests of each test collection on n workers, each with its own copy of the compiler. Results are reported in script order.") {
+                @Override
+                protected int invoke(int index, String[] args) {
+                    workers = getIntArg(++index, args);
+                    if (workers < 1)
+                        throw new IllegalArgumentException("Number of workers "
+                                + "must be at least 1.");
+                    return index + 1;
+                }
+            },
+            new CommandLineOption("compileserver",
+                                  "run the compilations of tests that are not run in parallel through one compile server, which keeps a warm compiler between them.") {
+                @Override
+                protected int invoke(int index, String[] args) {
+                    compileServer = true;
+                    return index + 1;
+                }
+            },
+            new CommandLineOption("time", "show the time each test takes") {
+                @Override
+                protected int invoke(int index, String[] args) {
+                    showTestTimes = true;
+                    return index + 1;
+                }
             }, new CommandLineOption(new String[] { "pdf" },
                                      "filename",
                                      "generate PDF report.") {
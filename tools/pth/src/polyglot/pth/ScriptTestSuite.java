@@ -92,6 +92,9 @@ public class ScriptTestSuite extends TestSuite<Test> {
         try {
             List<Test> value = grm.parse().<List<Test>> value();
             tests = value;
+            for (Test t : tests)
+                if (t instanceof SourceFileTestCollection)
+                    ((SourceFileTestCollection) t).setScript(tests);
         }
         catch (RuntimeException e) {
             throw e;
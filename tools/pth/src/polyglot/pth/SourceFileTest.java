@@ -80,6 +80,7 @@ public abstract class SourceFileTest extends AbstractTest {
     @Override
     protected boolean runTest() {
         List<List<String>> sourceFileNames = getSourceFileNames();
+        elapsed = 0;
 
         String testpath = td.getPathFromFlagMap("testpath");
         String sourcepath = td.getPathFromFlagMap("workpath", "sourcepath");
@@ -170,7 +171,7 @@ public abstract class SourceFileTest extends AbstractTest {
                 int ret = invokeCompiler(compilerDirname, cmdLineHdr, list);
                 // End timer.
                 long finish = System.nanoTime();
-                elapsed = finish - start;
+                elapsed += finish - start;
                 if (ret != 0) {
                     if (ret > 0) appendFailureMessage("Failed to compile: "
                             + compilerName() + " exit code " + ret);
@@ -347,6 +348,10 @@ public abstract class SourceFileTest extends AbstractTest {
         return null;
     }
 
+    /**
+     * Return the time, in nanoseconds, spent compiling the compilation units
+     * of this test.
+     */
     public long getCompilationTime() {
         return elapsed;
     }
@@ -1,12 +1,17 @@
 package polyglot.pth;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 /**
@@ -27,6 +32,9 @@ public abstract class SourceFileTestCollection
 
     protected Set<String> undefinedEnvVars = new HashSet<>();
 
+    /** The tests of the script this collection belongs to. */
+    protected List<? extends Test> script = Collections.emptyList();
+
     public SourceFileTestCollection(String testCommand, String name,
             String testDir, String args, List<SourceFileTest> tests) {
         super(testCommand + (name == null ? "" : " (" + name + ")"), tests);
@@ -114,6 +122,14 @@ public abstract class SourceFileTestCollection
         return l.toArray(new String[l.size()]);
     }
 
+    /**
+     * Set the tests of the script this collection belongs to, so that the
+     * collection can tell whether it depends on the others.
+     */
+    public void setScript(List<? extends Test> script) {
+        this.script = script;
+    }
+
     @Override
     public String getUniqueId() {
         return uniqueId;
@@ -166,6 +182,11 @@ public abstract class SourceFileTestCollection
         Map<String, TestResult> oldTestResults = new HashMap<>(testResults);
         Map<String, TestResult> newResults = new HashMap<>();
 
+        Map<SourceFileTest, Future<Boolean>> futures = null;
+        if (Main.options.workers > 1 && !haltOnFirstFailure
+                && canRunInParallel())
+            futures = submitTests(oldTestResults);
+
         boolean shouldExecute = true;
         for (SourceFileTest t : tests) {
             t.setTestDriver(td);
@@ -174,7 +195,10 @@ public abstract class SourceFileTestCollection
                 if (tr != null) t.setTestResult(tr);
                 t.setCommandLineHeader(cmdLineHdr);
 
-                boolean result = t.run();
+                boolean result;
+                if (futures != null)
+                    result = finishTest(t, futures.get(t));
+                else result = t.run();
                 okay = okay && result;
 
                 tr = t.getTestResult();
@@ -201,6 +225,80 @@ public abstract class SourceFileTestCollection
         return okay;
     }
 
+    /**
+     * Whether the tests of this collection may be run at the same time on
+     * several workers.  The test driver must then keep the compiler state of
+     * each worker apart, and the tests must not depend on one another's
+     * output or on that of other collections of the script.
+     */
+    protected boolean canRunInParallel() {
+        return false;
+    }
+
+    /**
+     * Start running on the workers every test of this collection that
+     * should be executed.  Each test reports to a silent output controller
+     * while it runs; {@link #finishTest(SourceFileTest, Future)} reports its
+     * results afterward, so that output follows the order of the script.
+     */
+    protected Map<SourceFileTest, Future<Boolean>> submitTests(
+            Map<String, TestResult> oldTestResults) {
+        ExecutorService executor = WorkerPool.executor(Main.options.workers);
+        Map<SourceFileTest, Future<Boolean>> futures = new HashMap<>();
+        for (final SourceFileTest t : tests) {
+            t.setTestDriver(td);
+            TestResult tr = oldTestResults.get(t.getUniqueId());
+            if (t.haltOnFailure()) break;
+            if (t.shouldExecute(tr)) {
+                if (tr != null) t.setTestResult(tr);
+                t.setCommandLineHeader(cmdLineHdr);
+                t.setOutputController(new SilentOutputController(null));
+                t.setPDFReporter(null);
+                futures.put(t, executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return t.run();
+                    }
+                }));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Wait for a test started by {@link #submitTests(Map)} and report its
+     * results.  A test not started on a worker is run now.
+     */
+    protected boolean finishTest(SourceFileTest t, Future<Boolean> future) {
+        if (future == null) return t.run();
+
+        boolean result;
+        try {
+            result = future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+        finally {
+            t.setOutputController(output);
+            t.setPDFReporter(pdfReporter);
+        }
+
+        output.startTest(t);
+        if (pdfReporter != null) pdfReporter.startTest(t);
+        output.finishTest(t);
+        if (pdfReporter != null) pdfReporter.finishTest(t);
+        return result;
+    }
+
     public String getSummary() {
         StringBuffer sb = new StringBuffer(getName());
         sb.append(": ");
@@ -284,4 +382,12 @@ public abstract class SourceFileTestCollection
     protected String getAdditionalClasspath() {
         return Main.options.classpath;
     }
+
+    /**
+     * Whether the compilations of tests run serially should go through one
+     * compile server.
+     */
+    public boolean useCompileServer() {
+        return Main.options.compileServer;
+    }
 }
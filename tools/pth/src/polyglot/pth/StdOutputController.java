@@ -87,13 +87,16 @@ public class StdOutputController extends OutputController {
         if (notice != null) print("[" + notice + "] ");
 
         if (sft.success())
-            println("OK");
+            print("OK");
         else {
             String msg = sft.getFailureMessage();
             if (msg != null)
-                println(msg);
-            else println("Failed (no message)");
+                print(msg);
+            else print("Failed (no message)");
         }
+        if (Main.options.showTestTimes)
+            print(" (" + sft.getCompilationTime() / 1000000 + " ms)");
+        println();
         if (!Main.options.suppressCompilerOutputs) {
             String stdout = sft.getCompilerStdout();
             if (stdout != null) {
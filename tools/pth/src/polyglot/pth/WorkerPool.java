@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.pth;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The worker threads on which tests are run when pth is asked to run the
+ * tests of a test collection in parallel.  Workers live for the whole run,
+ * so that any state a test driver keeps for a worker is set up only once.
+ */
+public class WorkerPool {
+    private static ExecutorService executor;
+
+    private static final ThreadLocal<Integer> currentWorker =
+            new ThreadLocal<>();
+
+    /**
+     * Return the executor running tasks on the workers, creating {@code n}
+     * workers on first use.
+     */
+    public static synchronized ExecutorService executor(int n) {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(n, new ThreadFactory() {
+                int count = 0;
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final int index = count++;
+                    Thread t = new Thread("pth-worker-" + index) {
+                        @Override
+                        public void run() {
+                            currentWorker.set(index);
+                            r.run();
+                        }
+                    };
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Return the index of the worker running on the current thread, or -1 if
+     * the current thread is not a worker.
+     */
+    public static int currentWorker() {
+        Integer index = currentWorker.get();
+        return index == null ? -1 : index;
+    }
+}
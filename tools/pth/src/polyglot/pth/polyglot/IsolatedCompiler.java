@@ -0,0 +1,185 @@
+package polyglot.pth.polyglot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import polyglot.main.Main.TerminationException;
+import polyglot.util.ErrorInfo;
+import polyglot.util.ErrorLimitError;
+import polyglot.util.ErrorQueue;
+import polyglot.util.InternalCompilerError;
+import polyglot.util.Position;
+
+/**
+ * A copy of the Polyglot compiler loaded by a class loader of its own, so
+ * that its static state (reporting topics, global options, counters for
+ * fresh names, and caches) is not shared with any other copy.  Only classes
+ * of the Java platform are shared; errors reported by the copy are
+ * translated into errors of the calling compiler.
+ */
+public class IsolatedCompiler {
+    protected final ClassLoader loader;
+    protected final Constructor<?> mainConstructor;
+    protected final Method start;
+    protected final Constructor<?> eqConstructor;
+    protected final Method getErrors;
+    protected final Method getErrorKind;
+    protected final Method getMessage;
+    protected final Method getPosition;
+    protected final Class<?> terminationException;
+
+    public IsolatedCompiler() {
+        this(System.getProperty("java.class.path"));
+    }
+
+    /**
+     * Load a copy of the compiler from the given class path.
+     */
+    public IsolatedCompiler(String classpath) {
+        List<URL> urls = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (entry.isEmpty()) continue;
+            try {
+                urls.add(new File(entry).toURI().toURL());
+            }
+            catch (MalformedURLException e) {
+                throw new InternalCompilerError(e);
+            }
+        }
+        // Delegate only to the loader of the Java platform classes.
+        loader = new URLClassLoader(urls.toArray(new URL[urls.size()]),
+                                    ClassLoader.getSystemClassLoader()
+                                               .getParent());
+        try {
+            Class<?> mainClass = loader.loadClass("polyglot.main.Main");
+            Class<?> eqClass = loader.loadClass("polyglot.util.ErrorQueue");
+            Class<?> silentEqClass =
+                    loader.loadClass("polyglot.util.SilentErrorQueue");
+            Class<?> errorInfoClass =
+                    loader.loadClass("polyglot.util.ErrorInfo");
+            mainConstructor = mainClass.getConstructor();
+            start = mainClass.getMethod("start", String[].class, eqClass);
+            eqConstructor =
+                    silentEqClass.getConstructor(int.class, String.class);
+            getErrors = silentEqClass.getMethod("getErrors");
+            getErrorKind = errorInfoClass.getMethod("getErrorKind");
+            getMessage = errorInfoClass.getMethod("getMessage");
+            getPosition = errorInfoClass.getMethod("getPosition");
+            terminationException =
+                    loader.loadClass("polyglot.main.Main$TerminationException");
+        }
+        catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new InternalCompilerError(e);
+        }
+    }
+
+    /**
+     * Run the compiler on the given command line, as
+     * {@link polyglot.main.Main#start(String[], ErrorQueue)} does, and report
+     * its errors to {@code eq}.
+     *
+     * @param limit the number of errors after which the compiler stops.
+     * @param name the name of the error queue.
+     */
+    public void start(String[] args, ErrorQueue eq, int limit, String name) {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextLoader = thread.getContextClassLoader();
+        Object isolatedEq;
+        try {
+            isolatedEq = eqConstructor.newInstance(limit, name);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new InternalCompilerError(e);
+        }
+
+        thread.setContextClassLoader(loader);
+        try {
+            start.invoke(mainConstructor.newInstance(), args, isolatedEq);
+        }
+        catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (terminationException.isInstance(cause)) {
+                int exitCode;
+                try {
+                    exitCode = terminationException.getField("exitCode")
+                                                   .getInt(cause);
+                }
+                catch (ReflectiveOperationException e1) {
+                    throw new InternalCompilerError(e1);
+                }
+                throw new TerminationException(cause.getMessage(), exitCode);
+            }
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new InternalCompilerError(cause);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new InternalCompilerError(e);
+        }
+        finally {
+            thread.setContextClassLoader(contextLoader);
+            copyErrors(isolatedEq, eq);
+        }
+    }
+
+    /**
+     * Enqueue in {@code eq} a copy of each error in the error queue
+     * {@code isolatedEq} of the isolated compiler.
+     */
+    protected void copyErrors(Object isolatedEq, ErrorQueue eq) {
+        try {
+            for (Object e : (List<?>) getErrors.invoke(isolatedEq)) {
+                int kind = (Integer) getErrorKind.invoke(e);
+                String message = copyMessage((String) getMessage.invoke(e));
+                Position position = copyPosition(getPosition.invoke(e));
+                eq.enqueue(new ErrorInfo(kind, message, position));
+            }
+        }
+        catch (ErrorLimitError e) {
+            // The isolated compiler stopped at the same error.
+        }
+        catch (ReflectiveOperationException e) {
+            throw new InternalCompilerError(e);
+        }
+    }
+
+    /**
+     * Return the message to report for an error of the isolated compiler.
+     */
+    protected String copyMessage(String message) {
+        return message;
+    }
+
+    /**
+     * Copy a position of the isolated compiler by serializing it.
+     */
+    protected Position copyPosition(Object position) {
+        if (position == null) return null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(position);
+            }
+            try (ObjectInputStream in =
+                    new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (Position) in.readObject();
+            }
+        }
+        catch (IOException | ClassNotFoundException e) {
+            throw new InternalCompilerError(e);
+        }
+    }
+}
@@ -3,10 +3,16 @@ package polyglot.pth.polyglot;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import polyglot.pth.SourceFileTest;
 import polyglot.pth.SourceFileTestCollection;
+import polyglot.pth.Test;
 
 public class PolyglotSourceFileTestCollection extends SourceFileTestCollection {
 
@@ -25,6 +31,8 @@ public class PolyglotSourceFileTestCollection extends SourceFileTestCollection {
 
     @Override
     protected List<String> buildCmdLine() {
+        // Arguments given with -args are for the Polyglot compilers.
+        if (JAVAC.equals(testCommand)) mainExtraArgs = null;
         List<String> args = super.buildCmdLine();
         String s;
 
@@ -72,6 +80,77 @@ public class PolyglotSourceFileTestCollection extends SourceFileTestCollection {
         return filename;
     }
 
+    /**
+     * Polyglot tests run in parallel unless they are run by javac, or they
+     * share state with tests run before or after them.  Each worker writes
+     * to a directory of its own under the output directory, so the tests of
+     * a collection run serially when:
+     * <ul>
+     * <li>they use a signature cache or a boot snapshot, which every
+     * compilation reads and may write, and which other collections may use;
+     * <li>their output directory is on the class path of a collection,
+     * including this one, which would not find the classes there;
+     * <li>their class path holds the output directory of another Polyglot
+     * collection.
+     * </ul>
+     */
+    @Override
+    protected boolean canRunInParallel() {
+        if (JAVAC.equals(testCommand)) return false;
+
+        if (cmdLineHdr.contains("-incremental")
+                || !argValues(cmdLineHdr, "-sigcache", "-bootsnapshot").isEmpty())
+            return false;
+
+        Set<Path> outputDirs = paths(argValues(cmdLineHdr, "-d", "-D"));
+        Set<Path> classpath = classpath(cmdLineHdr);
+        for (Test t : script) {
+            if (!(t instanceof PolyglotSourceFileTestCollection)) continue;
+            PolyglotSourceFileTestCollection c =
+                    (PolyglotSourceFileTestCollection) t;
+            if (!Collections.disjoint(outputDirs, classpath(c.cmdLineHdr)))
+                return false;
+            if (c != this && !JAVAC.equals(c.testCommand)
+                    && !Collections.disjoint(classpath,
+                                             paths(argValues(c.cmdLineHdr,
+                                                             "-d",
+                                                             "-D"))))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return the arguments given on {@code cmdLine} to any of the given
+     * flags.
+     */
+    protected static List<String> argValues(List<String> cmdLine,
+            String... flags) {
+        List<String> values = new ArrayList<>();
+        List<String> flagList = Arrays.asList(flags);
+        for (Iterator<String> i = cmdLine.iterator(); i.hasNext();) {
+            String arg = i.next();
+            if (flagList.contains(arg) && i.hasNext()) values.add(i.next());
+        }
+        return values;
+    }
+
+    /** Return the entries of the class path on {@code cmdLine}. */
+    protected static Set<Path> classpath(List<String> cmdLine) {
+        List<String> entries = new ArrayList<>();
+        for (String classpath : argValues(cmdLine, "-cp", "-classpath"))
+            entries.addAll(Arrays.asList(classpath.split(File.pathSeparator)));
+        return paths(entries);
+    }
+
+    /** Return the normalized absolute paths of the given files. */
+    protected static Set<Path> paths(List<String> files) {
+        Set<Path> paths = new HashSet<>();
+        for (String file : files)
+            paths.add(new File(file).toPath().toAbsolutePath().normalize());
+        return paths;
+    }
+
     @Override
     protected PolyglotTestDriver createTestDriver() {
         PolyglotTestDriver ptd;
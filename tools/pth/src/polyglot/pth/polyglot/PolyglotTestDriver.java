@@ -1,16 +1,32 @@
 package polyglot.pth.polyglot;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
+import polyglot.main.CompileServer;
 import polyglot.pth.AbstractTestDriver;
 import polyglot.pth.PDFReporter;
 import polyglot.pth.SourceFileTest;
 import polyglot.pth.SourceFileTestCollection;
+import polyglot.pth.WorkerPool;
 import polyglot.util.ErrorQueue;
 
 public class PolyglotTestDriver extends AbstractTestDriver {
 
+    /**
+     * The copy of the compiler used by each worker, when tests are run in
+     * parallel.
+     */
+    protected static final ThreadLocal<IsolatedCompiler> workerCompiler =
+            new ThreadLocal<>();
+
+    /**
+     * The compile server through which tests that are not run in parallel
+     * are compiled, with pth -compileserver.
+     */
+    protected static CompileServer compileServer;
+
     protected File testDir;
     protected File destDir;
 
@@ -47,8 +63,34 @@ public class PolyglotTestDriver extends AbstractTestDriver {
             List<String> cmdLine) {
         ErrorQueue eq = sft.errorQueue();
         try {
-            polyglot.main.Main polyglotMain = new polyglot.main.Main();
-            polyglotMain.start(cmdLine.toArray(new String[cmdLine.size()]), eq);
+            final int worker = WorkerPool.currentWorker();
+            if (worker >= 0) {
+                IsolatedCompiler compiler = workerCompiler.get();
+                if (compiler == null) {
+                    compiler = new IsolatedCompiler() {
+                        @Override
+                        protected String copyMessage(String message) {
+                            return workerMessage(message, worker);
+                        }
+                    };
+                    workerCompiler.set(compiler);
+                }
+                cmdLine = workerCmdLine(cmdLine, worker);
+                compiler.start(cmdLine.toArray(new String[cmdLine.size()]),
+                               eq,
+                               PolyglotSourceFileTest.ERROR_LIMIT,
+                               sft.getName());
+            }
+            else if (sftc.useCompileServer()) {
+                if (compileServer == null) compileServer = new CompileServer();
+                compileServer.compile(cmdLine.toArray(new String[cmdLine.size()]),
+                                      eq);
+            }
+            else {
+                polyglot.main.Main polyglotMain = new polyglot.main.Main();
+                polyglotMain.start(cmdLine.toArray(new String[cmdLine.size()]),
+                                   eq);
+            }
         }
         catch (polyglot.main.Main.TerminationException e) {
             if (e.getMessage() != null) {
@@ -66,6 +108,42 @@ public class PolyglotTestDriver extends AbstractTestDriver {
         return 0;
     }
 
+    /**
+     * Return the command line for a test run by the given worker, which
+     * writes its output to a directory of its own under the output
+     * directory, so that workers do not overwrite one another's files.
+     */
+    protected List<String> workerCmdLine(List<String> cmdLine, int worker) {
+        String workerDir = "pth-worker-" + worker;
+        List<String> result = new ArrayList<>(cmdLine.size() + 2);
+        boolean hasOutputDir = false;
+        boolean outputDir = false;
+        for (String arg : cmdLine) {
+            if (outputDir) arg = new File(arg, workerDir).getPath();
+            outputDir = arg.equals("-d") || arg.equals("-D");
+            hasOutputDir |= arg.equals("-d");
+            result.add(arg);
+        }
+        if (!hasOutputDir) {
+            result.add(0, "-d");
+            result.add(1, workerDir);
+        }
+        return result;
+    }
+
+    /**
+     * Return the message of an error reported by the given worker, with the
+     * output directory of the worker replaced by the one named on the
+     * command line, so that results do not depend on which worker ran a
+     * test.
+     */
+    protected String workerMessage(String message, int worker) {
+        if (message == null) return null;
+        String workerDir = "pth-worker-" + worker;
+        return message.replace(File.separator + workerDir, "")
+                      .replace(workerDir + File.separator, "");
+    }
+
     @Override
     public boolean preTest(SourceFileTestCollection sftc) {
         return true;